@@ -18,6 +18,9 @@ dependencies {
 
     implementation("org.furyio:fury-core:0.3.1")
 
+    // The runner provides the driver at runtime; COPY needs its CopyManager API at compile time.
+    compileOnly("org.postgresql:postgresql")
+
     // You may add any utility library you want to use, such as guava.
     // ORM libraries are prohibited in this project.
 }
@@ -0,0 +1,31 @@
+package io.sustc.dto;
+
+/**
+ * How a paged search fills {@link PageResult#getTotal()}.
+ */
+public enum CountMode {
+
+    /**
+     * Counts every match, on every call.
+     */
+    EXACT,
+
+    /**
+     * Counts every match, and keeps the count for the same filter a while. Counts are dropped when recipes are
+     * added or removed, and counts of filters on the rating when a rating changes.
+     */
+    CACHED,
+
+    /**
+     * Takes the number of matches the query planner expects, as long as it expects many; counts exactly when
+     * it expects few. The total is then approximate and may even be lower than the matches already paged.
+     */
+    ESTIMATED,
+
+    /**
+     * Counts nothing. The total is the number of matches up to the end of the page, plus one if there is a
+     * next page, so {@code total > page * size} tells whether to offer one. Only a page past the last match
+     * counts them all.
+     */
+    HAS_NEXT
+}
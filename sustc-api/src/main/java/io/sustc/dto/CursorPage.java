@@ -0,0 +1,31 @@
+package io.sustc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> implements Serializable {
+
+    /**
+     * List of items contained in the current page.
+     */
+    private List<T> items;
+
+    /**
+     * Number of items per page.
+     */
+    private int size;
+
+    /**
+     * Opaque cursor to pass back for the next page, or {@code null} if this page is the last one.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,63 @@
+package io.sustc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Where the time of one import went, phase by phase.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport implements Serializable {
+
+    /**
+     * Wall-clock time of the whole import.
+     */
+    private long elapsedMillis;
+
+    /**
+     * Phases in the order they ran. A phase over several tables has one entry without a table for the phase
+     * as a whole, followed by one entry per table.
+     */
+    private List<Phase> phases;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Phase implements Serializable {
+
+        /**
+         * Name of the phase, such as {@code create tables}, {@code load}, {@code primary keys} or {@code analyze}.
+         */
+        private String name;
+
+        /**
+         * Name of the table the entry is about, null for the phase as a whole.
+         */
+        private String table;
+
+        /**
+         * Rows the phase wrote, or the rows of the table it worked on.
+         */
+        private long rows;
+
+        /**
+         * Bytes sent to the server, 0 if not measured.
+         */
+        private long bytes;
+
+        /**
+         * Wall-clock time of the phase. Tables loaded in chunks add up the time of their chunks.
+         */
+        private long elapsedMillis;
+
+        public long getRowsPerSecond() {
+            return elapsedMillis == 0 ? rows * 1000 : rows * 1000 / elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.sustc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * How the secondary indexes of the imported tables have been used since the tables were created,
+ * or since the statistics were last reset.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexReport implements Serializable {
+
+    /**
+     * Every index the import is meant to build, in the order it builds them, followed by the indexes on the
+     * tables it does not know of. Primary keys are left out.
+     */
+    private List<Index> indexes;
+
+    /**
+     * How each table was read, to spot tables still scanned in full where an index is missing altogether.
+     */
+    private List<Table> tables;
+
+    public enum Status {
+
+        /**
+         * The index exists and was scanned at least once.
+         */
+        USED,
+
+        /**
+         * The index exists but was never scanned, so it only costs writes and space.
+         */
+        UNUSED,
+
+        /**
+         * The index is part of what the import builds but does not exist.
+         */
+        MISSING,
+
+        /**
+         * The index exists but is not part of what the import builds, so the next import drops it.
+         */
+        UNMANAGED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Index implements Serializable {
+
+        private String table;
+
+        private String name;
+
+        /**
+         * {@code CREATE INDEX} statement of the index, as it exists or, if missing, as it would be built.
+         */
+        private String definition;
+
+        private Status status;
+
+        /**
+         * Index scans started on the index, 0 if missing.
+         */
+        private long scans;
+
+        /**
+         * Size of the index on disk, 0 if missing.
+         */
+        private long bytes;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Table implements Serializable {
+
+        private String table;
+
+        /**
+         * Sequential scans started on the table.
+         */
+        private long seqScans;
+
+        /**
+         * Rows read by the sequential scans.
+         */
+        private long seqRows;
+
+        /**
+         * Index scans started on any index of the table.
+         */
+        private long indexScans;
+    }
+}
@@ -0,0 +1,70 @@
+package io.sustc.dto.column;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The strings of a column with few distinct values, like categories: every value is stored once, and each
+ * row holds the index of its value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DictionaryColumn implements Serializable {
+
+    /**
+     * The index of row i's value in {@link #values}, -1 for null
+     */
+    private int[] codes;
+
+    /**
+     * The distinct values, in order of first appearance
+     */
+    private String[] values;
+
+    public int size() {
+        return codes.length;
+    }
+
+    public int code(int i) {
+        return codes[i];
+    }
+
+    public String get(int i) {
+        return codes[i] < 0 ? null : values[codes[i]];
+    }
+
+    public static final class Builder {
+
+        private final Map<String, Integer> index = new HashMap<>();
+
+        private final List<String> values = new ArrayList<>();
+
+        private int[] codes = new int[16];
+
+        private int size;
+
+        public Builder add(String value) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            codes[size++] = value == null ? -1 : index.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+            return this;
+        }
+
+        public DictionaryColumn build() {
+            return new DictionaryColumn(Arrays.copyOf(codes, size), values.toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.sustc.dto.column;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A {@code long[]} per row, like lists of user ids, stored one after another in a single array.
+ * A null list is stored as an empty one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LongListColumn implements Serializable {
+
+    /**
+     * Where the list of row i starts in {@link #values}; it ends where the list of row i + 1 starts
+     */
+    private int[] starts;
+
+    private long[] values;
+
+    public int size() {
+        return starts.length - 1;
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int end(int i) {
+        return starts[i + 1];
+    }
+
+    public long[] get(int i) {
+        return Arrays.copyOfRange(values, starts[i], starts[i + 1]);
+    }
+
+    public static final class Builder {
+
+        private int[] starts = new int[17];
+
+        private long[] values = new long[64];
+
+        private int size;
+
+        public Builder add(long[] list) {
+            if (size + 1 == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            int start = starts[size];
+            int length = list == null ? 0 : list.length;
+            if (values.length - start < length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, start + length));
+            }
+            if (length > 0) {
+                System.arraycopy(list, 0, values, start, length);
+            }
+            starts[++size] = start + length;
+            return this;
+        }
+
+        public LongListColumn build() {
+            return new LongListColumn(Arrays.copyOf(starts, size + 1), Arrays.copyOf(values, starts[size]));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.sustc.dto.column;
+
+import io.sustc.dto.RecipeRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A block of {@link RecipeRecord}s stored column by column, the fields of all records in one array each.
+ * Categories and the ISO durations of the times repeat a lot and are dictionary-encoded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeColumns implements Serializable {
+
+    private long[] recipeId;
+
+    private TextColumn name;
+
+    private long[] authorId;
+
+    private TextColumn authorName;
+
+    private DictionaryColumn cookTime;
+
+    private DictionaryColumn prepTime;
+
+    private DictionaryColumn totalTime;
+
+    private TimestampColumn datePublished;
+
+    private TextColumn description;
+
+    private DictionaryColumn recipeCategory;
+
+    private TextListColumn recipeIngredientParts;
+
+    private float[] aggregatedRating;
+
+    private int[] reviewCount;
+
+    private float[] calories;
+
+    private float[] fatContent;
+
+    private float[] saturatedFatContent;
+
+    private float[] cholesterolContent;
+
+    private float[] sodiumContent;
+
+    private float[] carbohydrateContent;
+
+    private float[] fiberContent;
+
+    private float[] sugarContent;
+
+    private float[] proteinContent;
+
+    private int[] recipeServings;
+
+    private TextColumn recipeYield;
+
+    public static RecipeColumns of(List<RecipeRecord> records) {
+        int n = records.size();
+        RecipeColumns c = new RecipeColumns();
+        c.recipeId = new long[n];
+        c.authorId = new long[n];
+        c.aggregatedRating = new float[n];
+        c.reviewCount = new int[n];
+        c.calories = new float[n];
+        c.fatContent = new float[n];
+        c.saturatedFatContent = new float[n];
+        c.cholesterolContent = new float[n];
+        c.sodiumContent = new float[n];
+        c.carbohydrateContent = new float[n];
+        c.fiberContent = new float[n];
+        c.sugarContent = new float[n];
+        c.proteinContent = new float[n];
+        c.recipeServings = new int[n];
+        TextColumn.Builder name = new TextColumn.Builder();
+        TextColumn.Builder authorName = new TextColumn.Builder();
+        DictionaryColumn.Builder cookTime = new DictionaryColumn.Builder();
+        DictionaryColumn.Builder prepTime = new DictionaryColumn.Builder();
+        DictionaryColumn.Builder totalTime = new DictionaryColumn.Builder();
+        TimestampColumn.Builder datePublished = new TimestampColumn.Builder();
+        TextColumn.Builder description = new TextColumn.Builder();
+        DictionaryColumn.Builder recipeCategory = new DictionaryColumn.Builder();
+        TextListColumn.Builder recipeIngredientParts = new TextListColumn.Builder();
+        TextColumn.Builder recipeYield = new TextColumn.Builder();
+        for (int i = 0; i < n; i++) {
+            RecipeRecord r = records.get(i);
+            c.recipeId[i] = r.getRecipeId();
+            name.add(r.getName());
+            c.authorId[i] = r.getAuthorId();
+            authorName.add(r.getAuthorName());
+            cookTime.add(r.getCookTime());
+            prepTime.add(r.getPrepTime());
+            totalTime.add(r.getTotalTime());
+            datePublished.add(r.getDatePublished());
+            description.add(r.getDescription());
+            recipeCategory.add(r.getRecipeCategory());
+            recipeIngredientParts.add(r.getRecipeIngredientParts());
+            c.aggregatedRating[i] = r.getAggregatedRating();
+            c.reviewCount[i] = r.getReviewCount();
+            c.calories[i] = r.getCalories();
+            c.fatContent[i] = r.getFatContent();
+            c.saturatedFatContent[i] = r.getSaturatedFatContent();
+            c.cholesterolContent[i] = r.getCholesterolContent();
+            c.sodiumContent[i] = r.getSodiumContent();
+            c.carbohydrateContent[i] = r.getCarbohydrateContent();
+            c.fiberContent[i] = r.getFiberContent();
+            c.sugarContent[i] = r.getSugarContent();
+            c.proteinContent[i] = r.getProteinContent();
+            c.recipeServings[i] = r.getRecipeServings();
+            recipeYield.add(r.getRecipeYield());
+        }
+        c.name = name.build();
+        c.authorName = authorName.build();
+        c.cookTime = cookTime.build();
+        c.prepTime = prepTime.build();
+        c.totalTime = totalTime.build();
+        c.datePublished = datePublished.build();
+        c.description = description.build();
+        c.recipeCategory = recipeCategory.build();
+        c.recipeIngredientParts = recipeIngredientParts.build();
+        c.recipeYield = recipeYield.build();
+        return c;
+    }
+
+    public int size() {
+        return recipeId.length;
+    }
+
+    /**
+     * Builds the record of row {@code i}.
+     */
+    public RecipeRecord get(int i) {
+        return RecipeRecord.builder()
+                .RecipeId(recipeId[i])
+                .name(name.get(i))
+                .authorId(authorId[i])
+                .authorName(authorName.get(i))
+                .cookTime(cookTime.get(i))
+                .prepTime(prepTime.get(i))
+                .totalTime(totalTime.get(i))
+                .datePublished(datePublished.get(i))
+                .description(description.get(i))
+                .recipeCategory(recipeCategory.get(i))
+                .recipeIngredientParts(recipeIngredientParts.get(i))
+                .aggregatedRating(aggregatedRating[i])
+                .reviewCount(reviewCount[i])
+                .calories(calories[i])
+                .fatContent(fatContent[i])
+                .saturatedFatContent(saturatedFatContent[i])
+                .cholesterolContent(cholesterolContent[i])
+                .sodiumContent(sodiumContent[i])
+                .carbohydrateContent(carbohydrateContent[i])
+                .fiberContent(fiberContent[i])
+                .sugarContent(sugarContent[i])
+                .proteinContent(proteinContent[i])
+                .recipeServings(recipeServings[i])
+                .recipeYield(recipeYield.get(i))
+                .build();
+    }
+
+    public Stream<RecipeRecord> records() {
+        return IntStream.range(0, size()).mapToObj(this::get);
+    }
+}
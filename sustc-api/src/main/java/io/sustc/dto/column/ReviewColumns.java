@@ -0,0 +1,95 @@
+package io.sustc.dto.column;
+
+import io.sustc.dto.ReviewRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A block of {@link ReviewRecord}s stored column by column, the fields of all records in one array each.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewColumns implements Serializable {
+
+    private long[] reviewId;
+
+    private long[] recipeId;
+
+    private long[] authorId;
+
+    private TextColumn authorName;
+
+    private float[] rating;
+
+    private TextColumn review;
+
+    private TimestampColumn dateSubmitted;
+
+    private TimestampColumn dateModified;
+
+    private LongListColumn likes;
+
+    public static ReviewColumns of(List<ReviewRecord> records) {
+        int n = records.size();
+        ReviewColumns c = new ReviewColumns();
+        c.reviewId = new long[n];
+        c.recipeId = new long[n];
+        c.authorId = new long[n];
+        c.rating = new float[n];
+        TextColumn.Builder authorName = new TextColumn.Builder();
+        TextColumn.Builder review = new TextColumn.Builder();
+        TimestampColumn.Builder dateSubmitted = new TimestampColumn.Builder();
+        TimestampColumn.Builder dateModified = new TimestampColumn.Builder();
+        LongListColumn.Builder likes = new LongListColumn.Builder();
+        for (int i = 0; i < n; i++) {
+            ReviewRecord r = records.get(i);
+            c.reviewId[i] = r.getReviewId();
+            c.recipeId[i] = r.getRecipeId();
+            c.authorId[i] = r.getAuthorId();
+            authorName.add(r.getAuthorName());
+            c.rating[i] = r.getRating();
+            review.add(r.getReview());
+            dateSubmitted.add(r.getDateSubmitted());
+            dateModified.add(r.getDateModified());
+            likes.add(r.getLikes());
+        }
+        c.authorName = authorName.build();
+        c.review = review.build();
+        c.dateSubmitted = dateSubmitted.build();
+        c.dateModified = dateModified.build();
+        c.likes = likes.build();
+        return c;
+    }
+
+    public int size() {
+        return reviewId.length;
+    }
+
+    /**
+     * Builds the record of row {@code i}.
+     */
+    public ReviewRecord get(int i) {
+        return ReviewRecord.builder()
+                .reviewId(reviewId[i])
+                .recipeId(recipeId[i])
+                .authorId(authorId[i])
+                .authorName(authorName.get(i))
+                .rating(rating[i])
+                .review(review.get(i))
+                .dateSubmitted(dateSubmitted.get(i))
+                .dateModified(dateModified.get(i))
+                .likes(likes.get(i))
+                .build();
+    }
+
+    public Stream<ReviewRecord> records() {
+        return IntStream.range(0, size()).mapToObj(this::get);
+    }
+}
@@ -0,0 +1,107 @@
+package io.sustc.dto.column;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The strings of one column, UTF-8 encoded one after another into a single blob.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextColumn implements Serializable {
+
+    /**
+     * Where value i starts in {@link #bytes}; it ends where value i + 1 starts, so there is one more offset
+     * than there are values
+     */
+    private int[] offsets;
+
+    /**
+     * Whether value i is null
+     */
+    private boolean[] nulls;
+
+    /**
+     * The encoded values
+     */
+    private byte[] bytes;
+
+    public int size() {
+        return nulls.length;
+    }
+
+    public boolean isNull(int i) {
+        return nulls[i];
+    }
+
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    public int length(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Decodes value i, a new string on every call.
+     */
+    public String get(int i) {
+        return nulls[i] ? null : new String(bytes, offsets[i], length(i), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether values i and j are equal, compared without decoding them.
+     */
+    public boolean equals(int i, int j) {
+        if (nulls[i] || nulls[j]) {
+            return nulls[i] == nulls[j];
+        }
+        return Arrays.equals(bytes, offsets[i], offsets[i + 1], bytes, offsets[j], offsets[j + 1]);
+    }
+
+    public static final class Builder {
+
+        private int[] offsets = new int[17];
+
+        private boolean[] nulls = new boolean[16];
+
+        private byte[] bytes = new byte[256];
+
+        private int size;
+
+        public Builder add(String value) {
+            if (size == nulls.length) {
+                nulls = Arrays.copyOf(nulls, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+            int start = offsets[size];
+            if (value == null) {
+                nulls[size] = true;
+            } else {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length - start < encoded.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + encoded.length));
+                }
+                System.arraycopy(encoded, 0, bytes, start, encoded.length);
+                start += encoded.length;
+            }
+            offsets[++size] = start;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public TextColumn build() {
+            return new TextColumn(Arrays.copyOf(offsets, size + 1), Arrays.copyOf(nulls, size),
+                    Arrays.copyOf(bytes, offsets[size]));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.sustc.dto.column;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A {@code String[]} per row, like ingredient parts, with the items of all rows in one {@link TextColumn}.
+ * A null list is stored as an empty one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextListColumn implements Serializable {
+
+    /**
+     * Where the list of row i starts in {@link #items}; it ends where the list of row i + 1 starts
+     */
+    private int[] starts;
+
+    private TextColumn items;
+
+    public int size() {
+        return starts.length - 1;
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int end(int i) {
+        return starts[i + 1];
+    }
+
+    public String[] get(int i) {
+        String[] list = new String[starts[i + 1] - starts[i]];
+        for (int j = 0; j < list.length; j++) {
+            list[j] = items.get(starts[i] + j);
+        }
+        return list;
+    }
+
+    public static final class Builder {
+
+        private final TextColumn.Builder items = new TextColumn.Builder();
+
+        private int[] starts = new int[17];
+
+        private int size;
+
+        public Builder add(String[] list) {
+            if (size + 1 == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            if (list != null) {
+                for (String item : list) {
+                    items.add(item);
+                }
+            }
+            starts[++size] = items.size();
+            return this;
+        }
+
+        public TextListColumn build() {
+            return new TextListColumn(Arrays.copyOf(starts, size + 1), items.build());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.sustc.dto.column;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Timestamps as the microseconds of their wall-clock time since 1970-01-01 00:00, the way a
+ * {@code timestamp without time zone} column stores them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimestampColumn implements Serializable {
+
+    /**
+     * Stands for null in {@link #micros}.
+     */
+    public static final long NULL = Long.MIN_VALUE;
+
+    private long[] micros;
+
+    public int size() {
+        return micros.length;
+    }
+
+    public boolean isNull(int i) {
+        return micros[i] == NULL;
+    }
+
+    public long micros(int i) {
+        return micros[i];
+    }
+
+    public Timestamp get(int i) {
+        if (micros[i] == NULL) {
+            return null;
+        }
+        long seconds = Math.floorDiv(micros[i], 1_000_000L);
+        int nanos = (int) Math.floorMod(micros[i], 1_000_000L) * 1000;
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+    }
+
+    /**
+     * @return the wall-clock microseconds of {@code value}, rounded half up, or {@link #NULL}
+     */
+    public static long toMicros(Timestamp value) {
+        if (value == null) {
+            return NULL;
+        }
+        LocalDateTime time = value.toLocalDateTime();
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (time.getNano() + 500) / 1000;
+    }
+
+    public static final class Builder {
+
+        private long[] micros = new long[16];
+
+        private int size;
+
+        public Builder add(Timestamp value) {
+            if (size == micros.length) {
+                micros = Arrays.copyOf(micros, size * 2);
+            }
+            micros[size++] = toMicros(value);
+            return this;
+        }
+
+        public TimestampColumn build() {
+            return new TimestampColumn(Arrays.copyOf(micros, size));
+        }
+    }
+}
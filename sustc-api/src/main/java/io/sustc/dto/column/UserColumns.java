@@ -0,0 +1,100 @@
+package io.sustc.dto.column;
+
+import io.sustc.dto.UserRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A block of {@link UserRecord}s stored column by column, the fields of all records in one array each.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserColumns implements Serializable {
+
+    private long[] authorId;
+
+    private TextColumn authorName;
+
+    private DictionaryColumn gender;
+
+    private int[] age;
+
+    private int[] followers;
+
+    private int[] following;
+
+    private LongListColumn followerUsers;
+
+    private LongListColumn followingUsers;
+
+    private TextColumn password;
+
+    private boolean[] isDeleted;
+
+    public static UserColumns of(List<UserRecord> records) {
+        int n = records.size();
+        UserColumns c = new UserColumns();
+        c.authorId = new long[n];
+        c.age = new int[n];
+        c.followers = new int[n];
+        c.following = new int[n];
+        c.isDeleted = new boolean[n];
+        TextColumn.Builder authorName = new TextColumn.Builder();
+        DictionaryColumn.Builder gender = new DictionaryColumn.Builder();
+        LongListColumn.Builder followerUsers = new LongListColumn.Builder();
+        LongListColumn.Builder followingUsers = new LongListColumn.Builder();
+        TextColumn.Builder password = new TextColumn.Builder();
+        for (int i = 0; i < n; i++) {
+            UserRecord r = records.get(i);
+            c.authorId[i] = r.getAuthorId();
+            authorName.add(r.getAuthorName());
+            gender.add(r.getGender());
+            c.age[i] = r.getAge();
+            c.followers[i] = r.getFollowers();
+            c.following[i] = r.getFollowing();
+            followerUsers.add(r.getFollowerUsers());
+            followingUsers.add(r.getFollowingUsers());
+            password.add(r.getPassword());
+            c.isDeleted[i] = r.isDeleted();
+        }
+        c.authorName = authorName.build();
+        c.gender = gender.build();
+        c.followerUsers = followerUsers.build();
+        c.followingUsers = followingUsers.build();
+        c.password = password.build();
+        return c;
+    }
+
+    public int size() {
+        return authorId.length;
+    }
+
+    /**
+     * Builds the record of row {@code i}.
+     */
+    public UserRecord get(int i) {
+        return UserRecord.builder()
+                .authorId(authorId[i])
+                .authorName(authorName.get(i))
+                .gender(gender.get(i))
+                .age(age[i])
+                .followers(followers[i])
+                .following(following[i])
+                .followerUsers(followerUsers.get(i))
+                .followingUsers(followingUsers.get(i))
+                .password(password.get(i))
+                .isDeleted(isDeleted[i])
+                .build();
+    }
+
+    public Stream<UserRecord> records() {
+        return IntStream.range(0, size()).mapToObj(this::get);
+    }
+}
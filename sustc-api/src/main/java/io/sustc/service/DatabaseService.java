@@ -1,10 +1,17 @@
 package io.sustc.service;
 
+import io.sustc.dto.ImportReport;
+import io.sustc.dto.IndexReport;
 import io.sustc.dto.ReviewRecord;
 import io.sustc.dto.UserRecord;
 import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.UserColumns;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface DatabaseService {
 
@@ -29,6 +36,94 @@ public interface DatabaseService {
             List<RecipeRecord> recipeRecords
     );
 
+    /**
+     * Imports data to an empty database like {@link #importData(List, List, List)},
+     * but takes the records as streams, so they need not be in memory all at once.
+     * The streams are closed once consumed.
+     * <p>
+     * The default implementation collects the streams into lists.
+     *
+     * @param reviewRecords review records parsed from csv
+     * @param userRecords  user records parsed from csv
+     * @param recipeRecords recipe records parsed from csv
+     */
+    default void importData(
+            Stream<ReviewRecord> reviewRecords,
+            Stream<UserRecord> userRecords,
+            Stream<RecipeRecord> recipeRecords
+    ) {
+        try (reviewRecords; userRecords; recipeRecords) {
+            importData(
+                    reviewRecords.collect(Collectors.toList()),
+                    userRecords.collect(Collectors.toList()),
+                    recipeRecords.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Imports data to an empty database like {@link #importData(Stream, Stream, Stream)}, but takes
+     * the records as column blocks, which an implementation may load without building a record per row.
+     * The streams are closed once consumed.
+     * <p>
+     * The default implementation turns the blocks back into records.
+     *
+     * @param reviewColumns review records in blocks of columns
+     * @param userColumns  user records in blocks of columns
+     * @param recipeColumns recipe records in blocks of columns
+     */
+    default void importColumns(
+            Stream<ReviewColumns> reviewColumns,
+            Stream<UserColumns> userColumns,
+            Stream<RecipeColumns> recipeColumns
+    ) {
+        importData(
+                reviewColumns.flatMap(ReviewColumns::records),
+                userColumns.flatMap(UserColumns::records),
+                recipeColumns.flatMap(RecipeColumns::records));
+    }
+
+    /**
+     * Applies new or changed records to previously imported data, without dropping anything.
+     * <p>
+     * Each record inserts a new row or replaces the row with the same id, including its lists:
+     * a user's following users, a recipe's ingredient parts and a review's likes.
+     * Rows no record refers to are left as they are, and derived counts and ratings are kept consistent.
+     * Referenced users and recipes must exist or be part of the delta.
+     *
+     * @param reviewRecords new or changed review records
+     * @param userRecords  new or changed user records
+     * @param recipeRecords new or changed recipe records
+     */
+    void importDelta(
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords
+    );
+
+    /**
+     * Reports where the time of the last import went: creating the tables, loading each table, building
+     * indexes and constraints, and analyzing, with the rows, bytes and time of every phase.
+     * <p>
+     * The default implementation records nothing.
+     *
+     * @return the phases of the last finished import, or null if there is none or they are not recorded
+     */
+    default ImportReport getImportReport() {
+        return null;
+    }
+
+    /**
+     * Reports which secondary indexes of the imported tables are used, never used, missing, or not part of
+     * what the import builds, and how often each table was still read in full.
+     * <p>
+     * The default implementation checks nothing.
+     *
+     * @return the indexes and table scans of the current tables, or null if they are not checked
+     */
+    default IndexReport getIndexReport() {
+        return null;
+    }
+
     /**
      * Delete all tables in the database.
      * <p>
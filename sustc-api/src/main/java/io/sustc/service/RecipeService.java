@@ -1,6 +1,8 @@
 package io.sustc.service;
 
 import io.sustc.dto.AuthInfo;
+import io.sustc.dto.CountMode;
+import io.sustc.dto.CursorPage;
 import io.sustc.dto.PageResult;
 import io.sustc.dto.RecipeRecord;
 import org.springframework.lang.Nullable;
@@ -81,6 +83,58 @@ public interface RecipeService {
             String sort
     );
 
+    /**
+     * Searches recipes like {@link #searchRecipes(String, String, Double, Integer, Integer, String)}, filling
+     * {@link PageResult#getTotal()} as {@code count} says instead of as configured.
+     *
+     * @param keyword   fuzzy search term for name/description (nullable)
+     * @param category  category filter (nullable)
+     * @param minRating minimum rating filter (nullable)
+     * @param page      page number (1-based)
+     * @param size      page size
+     * @param sort      sorting criteria (nullable)
+     * @param count     how to count the matches, {@code null} for the configured way
+     * @return a {@link PageResult} containing paginated recipe results
+     * @throws IllegalArgumentException if {@code page < 1} or {@code size <= 0}
+     */
+    PageResult<RecipeRecord> searchRecipes(
+            String keyword,
+            String category,
+            Double minRating,
+            Integer page,
+            Integer size,
+            String sort,
+            @Nullable CountMode count
+    );
+
+    /**
+     * Searches recipes like {@link #searchRecipes(String, String, Double, Integer, Integer, String)}, a page at
+     * a time by cursor instead of by page number.
+     *
+     * <p>The first page is asked for with a {@code null} cursor; every page carries the cursor of the one after
+     * it, {@code null} on the last page. A cursor is only valid for the filter and sort it came from. Unlike a
+     * page number it stays cheap however deep the client reads, and recipes added or removed meanwhile do not
+     * shift later pages.
+     *
+     * @param keyword   fuzzy search term for name/description (nullable)
+     * @param category  category filter (nullable)
+     * @param minRating minimum rating filter (nullable)
+     * @param cursor    cursor from the previous page, {@code null} for the first page
+     * @param size      page size
+     * @param sort      sorting criteria (nullable)
+     * @return a {@link CursorPage} containing the recipes of the page
+     * @throws IllegalArgumentException if {@code size <= 0}, or if {@code cursor} is malformed or was made for
+     *                                  another sort
+     */
+    CursorPage<RecipeRecord> searchRecipesAfter(
+            String keyword,
+            String category,
+            Double minRating,
+            @Nullable String cursor,
+            int size,
+            String sort
+    );
+
     /**
      * Creates a new recipe authored by the authenticated user.
      *
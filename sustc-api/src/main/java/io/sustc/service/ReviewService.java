@@ -1,9 +1,11 @@
 package io.sustc.service;
 
 import io.sustc.dto.AuthInfo;
+import io.sustc.dto.CursorPage;
 import io.sustc.dto.PageResult;
 import io.sustc.dto.RecipeRecord;
 import io.sustc.dto.ReviewRecord;
+import org.springframework.lang.Nullable;
 
 
 public interface ReviewService {
@@ -191,6 +193,23 @@ public interface ReviewService {
      */
     PageResult<ReviewRecord> listByRecipe(long recipeId, int page, int size, String sort);
 
+    /**
+     * Lists reviews for a specific recipe like {@link #listByRecipe}, a page at a time by cursor instead of by
+     * page number.
+     *
+     * <p>The first page is asked for with a {@code null} cursor; every page carries the cursor of the one after
+     * it, {@code null} on the last page. A cursor is only valid for the recipe and sort it came from.
+     *
+     * @param recipeId the ID of the recipe whose reviews are being listed
+     * @param cursor   cursor from the previous page, {@code null} for the first page
+     * @param size     the number of items per page
+     * @param sort     sorting option, such as <code>"date_desc"</code> or <code>"likes_desc"</code>
+     * @return a {@link CursorPage} containing {@link ReviewRecord} entries
+     * @throws IllegalArgumentException if the recipe does not exist, if {@code size <= 0}, or if {@code cursor}
+     *                                  is malformed or was made for another sort
+     */
+    CursorPage<ReviewRecord> listByRecipeAfter(long recipeId, @Nullable String cursor, int size, String sort);
+
     /**
      * Recalculates and updates the {@code aggregated_rating} and {@code review_count}
      * fields for the specified recipe.
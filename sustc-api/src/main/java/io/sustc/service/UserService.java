@@ -199,16 +199,37 @@ public interface UserService {
      */
     PageResult<FeedItem> feed(AuthInfo auth, int page, int size, @Nullable String category);
 
+    /**
+     * Returns the recipe timeline (Feed) like {@link #feed}, a page at a time by cursor instead of by page number.
+     *
+     * <p>The first page is asked for with a {@code null} cursor; every page carries the cursor of the one after
+     * it, {@code null} on the last page. A cursor is only valid for the user and category it came from.
+     *
+     * @param auth     authentication info
+     * @param cursor   cursor from the previous page, {@code null} for the first page
+     * @param size     Page size (1~200, values outside this range are adjusted to valid bounds)
+     * @param category Optional recipe category filter, null means no filtering
+     * @return a {@link CursorPage} of timeline results
+     *
+     * @throws SecurityException if the user identity in {@code auth} is invalid or inactive
+     * @throws IllegalArgumentException if {@code cursor} is malformed
+     */
+    CursorPage<FeedItem> feedAfter(AuthInfo auth, @Nullable String cursor, int size, @Nullable String category);
+
 
     /**
      * Finds the active (non-deleted) user with the highest ratio of followers to followings.
      *
      * <p><b>Definition of Counts:</b></p>
-     * These values must be computed dynamically from {@code user_follows}:
+     * These values are the counts of the user's rows in {@code user_follows}:
      * <ul>
      *     <li><b>FollowerCount</b>: number of rows where {@code FollowingId = user.AuthorId}</li>
      *     <li><b>FollowingCount</b>: number of rows where {@code FollowerId = user.AuthorId}</li>
      * </ul>
+     * They may be read from counter columns maintained alongside {@code user_follows}, such as
+     * {@code users.FollowerCnt} and {@code users.FollowingCnt}, instead of being counted on every call. Then the
+     * import must fill the counters and every write to {@code user_follows} (following, unfollowing, deleting
+     * an account) must update them in the same transaction, so that they always equal the counts above.
      *
      * <p><b>Eligibility:</b></p>
      * <ul>
@@ -1,27 +1,33 @@
 package io.sustc.service.impl;
 
+import io.sustc.dto.ImportReport;
+import io.sustc.dto.IndexReport;
 import io.sustc.dto.ReviewRecord;
 import io.sustc.dto.UserRecord;
 import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.UserColumns;
 import io.sustc.service.DatabaseService;
+import io.sustc.service.impl.importer.BatchTableLoader;
+import io.sustc.service.impl.importer.CopyTableLoader;
+import io.sustc.service.impl.importer.ImportConfig;
+import io.sustc.service.impl.importer.ImportData;
+import io.sustc.service.impl.importer.ImportMode;
+import io.sustc.service.impl.importer.ImportScheduler;
+import io.sustc.service.impl.importer.ImportSchema;
+import io.sustc.service.impl.importer.TableLoader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.*;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * It's important to mark your implementation class with {@link Service} annotation.
@@ -47,337 +53,99 @@ public class DatabaseServiceImpl implements DatabaseService {
     }
 
     @Autowired
-    private JdbcTemplate jdbcTemplate;
-
-    @Override
-    @Transactional
-    public void importData(
-            List<ReviewRecord> reviewRecords,
-            List<UserRecord> userRecords,
-            List<RecipeRecord> recipeRecords) {
-
-        // ddl to create tables.
-        createTables();
-
-        insertUsers(userRecords);
-
-        insertRecipes(recipeRecords);
-
-        insertReviews(reviewRecords);
-
-        insertRecipeIngredients(recipeRecords);
-
-        insertReviewLikes(reviewRecords);
-
-        insertUserFollows(userRecords);
-    }
-
-
-    private void createTables() {
-        String[] createTableSQLs = {
-                // 创建users表
-                "CREATE TABLE IF NOT EXISTS users (" +
-                        "    AuthorId BIGINT PRIMARY KEY, " +
-                        "    AuthorName VARCHAR(255) NOT NULL, " +
-                        "    Gender VARCHAR(10) CHECK (Gender IN ('Male', 'Female')), " +
-                        "    Age INTEGER CHECK (Age > 0), " +
-                        "    Followers INTEGER DEFAULT 0 CHECK (Followers >= 0), " +
-                        "    Following INTEGER DEFAULT 0 CHECK (Following >= 0), " +
-                        "    Password VARCHAR(255), " +
-                        "    IsDeleted BOOLEAN DEFAULT FALSE" +
-                        ")",
+    private ImportConfig importConfig;
 
-                // 创建recipes表
-                "CREATE TABLE IF NOT EXISTS recipes (" +
-                        "    RecipeId BIGINT PRIMARY KEY, " +
-                        "    Name VARCHAR(500) NOT NULL, " +
-                        "    AuthorId BIGINT NOT NULL, " +
-                        "    CookTime VARCHAR(50), " +
-                        "    PrepTime VARCHAR(50), " +
-                        "    TotalTime VARCHAR(50), " +
-                        "    DatePublished TIMESTAMP, " +
-                        "    Description TEXT, " +
-                        "    RecipeCategory VARCHAR(255), " +
-                        "    AggregatedRating DECIMAL(3,2) CHECK (AggregatedRating >= 0 AND AggregatedRating <= 5), " +
-                        "    ReviewCount INTEGER DEFAULT 0 CHECK (ReviewCount >= 0), " +
-                        "    Calories DECIMAL(10,2), " +
-                        "    FatContent DECIMAL(10,2), " +
-                        "    SaturatedFatContent DECIMAL(10,2), " +
-                        "    CholesterolContent DECIMAL(10,2), " +
-                        "    SodiumContent DECIMAL(10,2), " +
-                        "    CarbohydrateContent DECIMAL(10,2), " +
-                        "    FiberContent DECIMAL(10,2), " +
-                        "    SugarContent DECIMAL(10,2), " +
-                        "    ProteinContent DECIMAL(10,2), " +
-                        "    RecipeServings VARCHAR(100), " +
-                        "    RecipeYield VARCHAR(100), " +
-                        "    FOREIGN KEY (AuthorId) REFERENCES users(AuthorId)" +
-                        ")",
+    @Autowired
+    private ImportScheduler importScheduler;
 
-                // 创建reviews表
-                "CREATE TABLE IF NOT EXISTS reviews (" +
-                        "    ReviewId BIGINT PRIMARY KEY, " +
-                        "    RecipeId BIGINT NOT NULL, " +
-                        "    AuthorId BIGINT NOT NULL, " +
-                        "    Rating INTEGER, " +
-                        "    Review TEXT, " +
-                        "    DateSubmitted TIMESTAMP, " +
-                        "    DateModified TIMESTAMP, " +
-                        "    FOREIGN KEY (RecipeId) REFERENCES recipes(RecipeId), " +
-                        "    FOREIGN KEY (AuthorId) REFERENCES users(AuthorId)" +
-                        ")",
+    @Autowired
+    private ImportSchema importSchema;
 
-                // 创建recipe_ingredients表
-                "CREATE TABLE IF NOT EXISTS recipe_ingredients (" +
-                        "    RecipeId BIGINT, " +
-                        "    IngredientPart VARCHAR(500), " +
-                        "    PRIMARY KEY (RecipeId, IngredientPart), " +
-                        "    FOREIGN KEY (RecipeId) REFERENCES recipes(RecipeId)" +
-                        ")",
+    @Autowired
+    private CopyTableLoader copyTableLoader;
 
-                // 创建review_likes表
-                "CREATE TABLE IF NOT EXISTS review_likes (" +
-                        "    ReviewId BIGINT, " +
-                        "    AuthorId BIGINT, " +
-                        "    PRIMARY KEY (ReviewId, AuthorId), " +
-                        "    FOREIGN KEY (ReviewId) REFERENCES reviews(ReviewId), " +
-                        "    FOREIGN KEY (AuthorId) REFERENCES users(AuthorId)" +
-                        ")",
+    @Autowired
+    private BatchTableLoader batchTableLoader;
 
-                // 创建user_follows表
-                "CREATE TABLE IF NOT EXISTS user_follows (" +
-                        "    FollowerId BIGINT, " +
-                        "    FollowingId BIGINT, " +
-                        "    PRIMARY KEY (FollowerId, FollowingId), " +
-                        "    FOREIGN KEY (FollowerId) REFERENCES users(AuthorId), " +
-                        "    FOREIGN KEY (FollowingId) REFERENCES users(AuthorId), " +
-                        "    CHECK (FollowerId != FollowingId)" +
-                        ")"
-        };
+    @Autowired
+    private RecipeCounts recipeCounts;
 
-        for (String sql : createTableSQLs) {
-            jdbcTemplate.execute(sql);
+    @Override
+    public void importData(
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords) {
+        ImportData data = ImportData.of(reviewRecords, userRecords, recipeRecords);
+
+        // checkpoints need commits along the way, which only the pooled run makes
+        try {
+            if (importConfig.getParallelism() > 1 || importConfig.isResume()) {
+                importScheduler.runParallel(data, loader());
+            } else {
+                importScheduler.runSequential(data, loader());
+            }
+        } finally {
+            recipeCounts.invalidate();
         }
     }
 
-    private void insertUsers(List<UserRecord> users) {
-        String sql = """
-        INSERT INTO users
-        (AuthorId, AuthorName, Gender, Age, Followers, Following, Password, IsDeleted)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-        ON CONFLICT (AuthorId) DO NOTHING
-        """;
-
-        int batchSize = 1000;
-
-        for (int i = 0; i < users.size(); i += batchSize) {
-            List<UserRecord> sub =
-                    users.subList(i, Math.min(i + batchSize, users.size()));
-
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int idx) throws SQLException {
-                    UserRecord u = sub.get(idx);
-                    ps.setLong(1, u.getAuthorId());
-                    ps.setString(2, u.getAuthorName());
-                    ps.setString(3, u.getGender());
-                    ps.setInt(4, u.getAge());
-                    ps.setInt(5, u.getFollowers());
-                    ps.setInt(6, u.getFollowing());
-                    ps.setString(7, u.getPassword());
-                    ps.setBoolean(8, u.isDeleted());
-                }
-
-                @Override
-                public int getBatchSize() {
-                    return sub.size();
-                }
-            });
+    @Override
+    public void importData(
+            Stream<ReviewRecord> reviewRecords,
+            Stream<UserRecord> userRecords,
+            Stream<RecipeRecord> recipeRecords) {
+        try (Stream<ImportData> chunks = ImportData.chunks(
+                reviewRecords, userRecords, recipeRecords, importConfig.getChunkSize())) {
+            if (importConfig.getParallelism() > 1 || importConfig.isResume()) {
+                importScheduler.runParallel(chunks, loader());
+            } else {
+                importScheduler.runSequential(chunks, loader());
+            }
+        } finally {
+            recipeCounts.invalidate();
         }
     }
 
-    private void insertRecipes(List<RecipeRecord> recipes) {
-        String sql = """
-        INSERT INTO recipes
-        (RecipeId, Name, AuthorId, CookTime, PrepTime, TotalTime,
-         DatePublished, Description, RecipeCategory,
-         AggregatedRating, ReviewCount,
-         Calories, FatContent, SaturatedFatContent,
-         CholesterolContent, SodiumContent,
-         CarbohydrateContent, FiberContent, SugarContent,
-         ProteinContent, RecipeServings, RecipeYield)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        ON CONFLICT (RecipeId) DO NOTHING
-        """;
-
-        int batchSize = 1000;
-
-        for (int i = 0; i < recipes.size(); i += batchSize) {
-            List<RecipeRecord> sub =
-                    recipes.subList(i, Math.min(i + batchSize, recipes.size()));
-
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int idx) throws SQLException {
-                    RecipeRecord r = sub.get(idx);
-                    ps.setLong(1, r.getRecipeId());
-                    ps.setString(2, r.getName());
-                    ps.setLong(3, r.getAuthorId());
-                    ps.setString(4, r.getCookTime());
-                    ps.setString(5, r.getPrepTime());
-                    ps.setString(6, r.getTotalTime());
-                    ps.setTimestamp(7, r.getDatePublished());
-                    ps.setString(8, r.getDescription());
-                    ps.setString(9, r.getRecipeCategory());
-                    ps.setFloat(10, r.getAggregatedRating());
-                    ps.setInt(11, r.getReviewCount());
-                    ps.setFloat(12, r.getCalories());
-                    ps.setFloat(13, r.getFatContent());
-                    ps.setFloat(14, r.getSaturatedFatContent());
-                    ps.setFloat(15, r.getCholesterolContent());
-                    ps.setFloat(16, r.getSodiumContent());
-                    ps.setFloat(17, r.getCarbohydrateContent());
-                    ps.setFloat(18, r.getFiberContent());
-                    ps.setFloat(19, r.getSugarContent());
-                    ps.setFloat(20, r.getProteinContent());
-                    ps.setInt(21, r.getRecipeServings());
-                    ps.setString(22, r.getRecipeYield());
-                }
-
-                @Override
-                public int getBatchSize() {
-                    return sub.size();
-                }
-            });
+    @Override
+    public void importColumns(
+            Stream<ReviewColumns> reviewColumns,
+            Stream<UserColumns> userColumns,
+            Stream<RecipeColumns> recipeColumns) {
+        try (Stream<ImportData> chunks = ImportData.columnChunks(reviewColumns, userColumns, recipeColumns)) {
+            if (importConfig.getParallelism() > 1 || importConfig.isResume()) {
+                importScheduler.runParallel(chunks, loader());
+            } else {
+                importScheduler.runSequential(chunks, loader());
+            }
+        } finally {
+            recipeCounts.invalidate();
         }
     }
 
-    private void insertReviews(List<ReviewRecord> reviews) {
-        String sql = """
-        INSERT INTO reviews
-        (ReviewId, RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified)
-        VALUES (?, ?, ?, ?, ?, ?, ?)
-        ON CONFLICT (ReviewId) DO NOTHING
-        """;
-
-        int batchSize = 1000;
-
-        for (int i = 0; i < reviews.size(); i += batchSize) {
-            List<ReviewRecord> sub =
-                    reviews.subList(i, Math.min(i + batchSize, reviews.size()));
-
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int idx) throws SQLException {
-                    ReviewRecord r = sub.get(idx);
-                    ps.setLong(1, r.getReviewId());
-                    ps.setLong(2, r.getRecipeId());
-                    ps.setLong(3, r.getAuthorId());
-                    ps.setFloat(4, r.getRating());
-                    ps.setString(5, r.getReview());
-                    ps.setTimestamp(6, r.getDateSubmitted());
-                    ps.setTimestamp(7, r.getDateModified());
-                }
-
-                @Override
-                public int getBatchSize() {
-                    return sub.size();
-                }
-            });
+    @Override
+    public void importDelta(
+            List<ReviewRecord> reviewRecords,
+            List<UserRecord> userRecords,
+            List<RecipeRecord> recipeRecords) {
+        try {
+            importScheduler.runDelta(ImportData.delta(reviewRecords, userRecords, recipeRecords), loader());
+        } finally {
+            recipeCounts.invalidate();
         }
     }
 
-    private void insertRecipeIngredients(List<RecipeRecord> recipes) {
-        String sql = "INSERT INTO recipe_ingredients (RecipeId, IngredientPart) VALUES (?, ?) ON CONFLICT DO NOTHING";
-
-        List<Pair<Long, String>> pairs = new ArrayList<>();
-        for (RecipeRecord r : recipes) {
-            for (String part : r.getRecipeIngredientParts()) {
-                pairs.add(new Pair<>(r.getRecipeId(), part));
-            }
-        }
-
-        int batchSize = 1000;
-
-        for (int i = 0; i < pairs.size(); i += batchSize) {
-            List<Pair<Long, String>> sub = pairs.subList(i, Math.min(i + batchSize, pairs.size()));
-
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int idx) throws SQLException {
-                    Pair<Long, String> p = sub.get(idx);
-                    ps.setLong(1, p.getKey());
-                    ps.setString(2, p.getValue());
-                }
-
-                @Override
-                public int getBatchSize() {
-                    return sub.size();
-                }
-            });
-        }
+    @Override
+    public ImportReport getImportReport() {
+        return importScheduler.getLastReport();
     }
 
-    private void insertReviewLikes(List<ReviewRecord> reviews) {
-        String sql = "INSERT INTO review_likes (ReviewId, AuthorId) VALUES (?, ?) ON CONFLICT DO NOTHING";
-
-        List<Pair<Long, Long>> pairs = new ArrayList<>();
-        for (ReviewRecord r: reviews) {
-            for (long like: r.getLikes()) {
-                pairs.add(new Pair<>(r.getReviewId(), like));
-            }
-        }
-
-        int batchSize = 1000;
-
-        for (int i = 0; i < pairs.size(); i += batchSize) {
-            List<Pair<Long, Long>> sub = pairs.subList(i, Math.min(i + batchSize, pairs.size()));
-
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int idx) throws SQLException {
-                    Pair<Long, Long> p = sub.get(idx);
-                    ps.setLong(1, p.getKey());
-                    ps.setLong(2, p.getValue());
-                }
-
-                @Override
-                public int getBatchSize() {
-                    return sub.size();
-                }
-            });
-        }
+    @Override
+    public IndexReport getIndexReport() {
+        return importSchema.indexReport();
     }
 
-    private void insertUserFollows(List<UserRecord> users) {
-        String sql = "INSERT INTO user_follows(FollowerId, FollowingId) VALUES (?, ?) ON CONFLICT DO NOTHING";
-
-        List<Pair<Long, Long>> pairs = new ArrayList<>();
-        for (UserRecord u: users) {
-            for (long following: u.getFollowingUsers()) {
-                pairs.add(new Pair<>(u.getAuthorId(), following));
-            }
-        }
-
-        int batchSize = 1000;
-
-        for (int i = 0; i < pairs.size(); i += batchSize) {
-            List<Pair<Long, Long>> sub = pairs.subList(i, Math.min(i + batchSize, pairs.size()));
-
-            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-                @Override
-                public void setValues(PreparedStatement ps, int idx) throws SQLException {
-                    Pair<Long, Long> p = sub.get(idx);
-                    ps.setLong(1, p.getKey());
-                    ps.setLong(2, p.getValue());
-                }
-
-                @Override
-                public int getBatchSize() {
-                    return sub.size();
-                }
-            });
-        }
+    private TableLoader loader() {
+        return importConfig.getMode() == ImportMode.COPY ? copyTableLoader : batchTableLoader;
     }
 
 
@@ -412,6 +180,8 @@ public class DatabaseServiceImpl implements DatabaseService {
             stmt.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            recipeCounts.invalidate();
         }
     }
 
@@ -432,12 +202,4 @@ public class DatabaseServiceImpl implements DatabaseService {
             throw new RuntimeException(e);
         }
     }
-
-    public static class Pair<K, V> {
-        private final K key;
-        private final V value;
-        public Pair(K key, V value) { this.key = key; this.value = value; }
-        public K getKey() { return key; }
-        public V getValue() { return value; }
-    }
 }
@@ -0,0 +1,122 @@
+package io.sustc.service.impl;
+
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One sort order of a paged query, and the opaque cursors continuing it after a given row.
+ * <p>
+ * A cursor holds the name of the sort, the id of the last row read and its sort key as PostgreSQL prints it, so
+ * the key goes back to the server as text and is cast to its own type again, without going through a Java type
+ * that could round it. The next page is read with a seek condition that starts right after that row in the
+ * index on (key, id), instead of reading and skipping every row before it as {@code OFFSET} does.
+ * <p>
+ * Ties are broken by the id, descending. Null keys come first when descending and last when ascending, as
+ * PostgreSQL sorts them by default. Only a descending key seeks through the index, as a row comparison
+ * {@code (key, id) < (?, ?)}; an ascending key against the descending id, or a cursor on a row without a key,
+ * needs an {@code OR} the index scan can only filter with, so such pages still read the rows before them.
+ */
+final class Keyset {
+
+    private final String sort;
+
+    private final String key;
+
+    private final String type;
+
+    private final boolean descending;
+
+    private final String id;
+
+    /**
+     * @param sort       name of the sort, checked against the cursors given back
+     * @param key        sort key column, null to sort by id alone
+     * @param type       SQL type of the key
+     * @param descending whether the key sorts descending
+     * @param id         id column
+     */
+    Keyset(String sort, @Nullable String key, @Nullable String type, boolean descending, String id) {
+        this.sort = sort;
+        this.key = key;
+        this.type = type;
+        this.descending = descending;
+        this.id = id;
+    }
+
+    String orderBy() {
+        String byId = id + " DESC";
+        return key == null ? byId : key + (descending ? " DESC, " : " ASC, ") + byId;
+    }
+
+    /**
+     * The sort key as text, to select as {@code SortKey} and pass to {@link #cursor} for the last row of a page.
+     */
+    String sortKey() {
+        return (key == null ? "NULL" : key) + "::text AS SortKey";
+    }
+
+    /**
+     * Appends {@code AND ...} keeping only the rows after {@code cursor} to {@code sql}, and its values to
+     * {@code params}; nothing for the first page, whose cursor is null.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or was made for another sort
+     */
+    void seek(@Nullable String cursor, StringBuilder sql, List<Object> params) {
+        if (cursor == null) {
+            return;
+        }
+        String[] parts = decode(cursor);
+        long lastId = Long.parseLong(parts[1]);
+        if (key == null) {
+            sql.append(" AND ").append(id).append(" < ?");
+            params.add(lastId);
+            return;
+        }
+        String value = "CAST(? AS " + type + ")";
+        if (parts.length < 3) {
+            // The last row had no key: only rows without one are left ascending, descending they come first
+            sql.append(descending
+                    ? " AND (" + key + " IS NOT NULL OR " + id + " < ?)"
+                    : " AND " + key + " IS NULL AND " + id + " < ?");
+            params.add(lastId);
+        } else if (descending) {
+            sql.append(" AND (").append(key).append(", ").append(id).append(") < (").append(value).append(", ?)");
+            params.add(parts[2]);
+            params.add(lastId);
+        } else {
+            sql.append(" AND (").append(key).append(" > ").append(value)
+                    .append(" OR ").append(key).append(" = ").append(value).append(" AND ").append(id).append(" < ?")
+                    .append(" OR ").append(key).append(" IS NULL)");
+            params.add(parts[2]);
+            params.add(parts[2]);
+            params.add(lastId);
+        }
+    }
+
+    /**
+     * The cursor of the page after a row with the given sort key, as selected by {@link #sortKey}, and id.
+     */
+    String cursor(@Nullable String sortKey, long lastId) {
+        String plain = sort + "," + lastId + (sortKey == null ? "" : "," + sortKey);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decode(String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("malformed cursor", e);
+        }
+        if (parts.length < 2 || !parts[1].matches("-?\\d{1,18}")) {
+            throw new IllegalArgumentException("malformed cursor");
+        }
+        if (!parts[0].equals(sort)) {
+            throw new IllegalArgumentException("cursor was made for sort " + parts[0] + ", not " + sort);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,155 @@
+package io.sustc.service.impl;
+
+import io.sustc.dto.CountMode;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The match counts of recipe searches, for the {@link CountMode}s that avoid counting on every call.
+ * <p>
+ * Writes that change what searches match drop the counts they affect and move a generation on, and a count
+ * is only cached if no such write finished while it was read. Writes in a transaction only do so once they
+ * commit, so no count read before a write outlives it.
+ * <p>
+ * Once {@link SearchConfig#getCountCacheSize()} counts are cached, each new one evicts the count used least
+ * recently, so a burst of new searches does not make every hot search count again at once.
+ */
+@Component
+class RecipeCounts {
+
+    /**
+     * Rows the top node of the plan expects, the first {@code Plan Rows} of {@code EXPLAIN (FORMAT JSON)}.
+     */
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SearchConfig searchConfig;
+
+    /**
+     * Counts in access order, guarded by {@code this}.
+     */
+    private final Map<RecipeSearch, Count> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RecipeSearch, Count> eldest) {
+            return size() > searchConfig.getCountCacheSize();
+        }
+    };
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @return the generation to pass to {@link #put} for a count read from now on
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @return the cached count of {@code search}, or {@code null} if there is none or it expired
+     */
+    synchronized Long cached(RecipeSearch search) {
+        Count count = cache.get(search);
+        if (count == null) {
+            return null;
+        }
+        if (System.nanoTime() - count.getNanos() > searchConfig.getCountTtl().toNanos()) {
+            cache.remove(search);
+            return null;
+        }
+        return count.getCount();
+    }
+
+    /**
+     * Caches the count of {@code search}, read after {@link #generation} returned {@code generation}.
+     */
+    synchronized void put(RecipeSearch search, long count, long generation) {
+        if (generation != this.generation.get()) {
+            return;
+        }
+        cache.put(search, new Count(count, System.nanoTime()));
+    }
+
+    /**
+     * @return the matches of {@code search} the planner expects, or {@code null} if it expects fewer than
+     *         {@link SearchConfig#getEstimateThreshold()}, which are cheap enough to count
+     */
+    Long estimate(RecipeSearch search) {
+        StringBuilder sql = new StringBuilder("EXPLAIN (FORMAT JSON) SELECT 1 FROM recipes r WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        search.where(sql, params);
+        String plan = jdbcTemplate.queryForObject(sql.toString(), String.class, params.toArray());
+        Matcher m = PLAN_ROWS.matcher(plan == null ? "" : plan);
+        if (!m.find()) {
+            return null;
+        }
+        long rows = Long.parseLong(m.group(1));
+        return rows >= searchConfig.getEstimateThreshold() ? rows : null;
+    }
+
+    /**
+     * @return the exact number of matches of {@code search}
+     */
+    long exact(RecipeSearch search) {
+        StringBuilder sql = new StringBuilder("SELECT count(*) FROM recipes r WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        search.where(sql, params);
+        return jdbcTemplate.queryForObject(sql.toString(), Long.class, params.toArray());
+    }
+
+    /**
+     * Drops every count, for writes that add or remove recipes.
+     */
+    void invalidate() {
+        afterCommit(() -> drop(search -> true));
+    }
+
+    /**
+     * Drops the counts of searches by rating, for writes that change the rating of a recipe.
+     */
+    void invalidateRatings() {
+        afterCommit(() -> drop(RecipeSearch::filtersRating));
+    }
+
+    private synchronized void drop(Predicate<RecipeSearch> affected) {
+        generation.incrementAndGet();
+        cache.keySet().removeIf(affected);
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits, or right away outside of one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    @Value
+    private static class Count {
+        long count;
+        long nanos;
+    }
+}
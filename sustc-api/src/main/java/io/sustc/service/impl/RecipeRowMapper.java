@@ -0,0 +1,62 @@
+package io.sustc.service.impl;
+
+import io.sustc.dto.RecipeRecord;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a row of the recipe search to a {@link RecipeRecord}, column by column instead of through bean
+ * introspection like {@link org.springframework.jdbc.core.BeanPropertyRowMapper}. The ingredient parts come
+ * aggregated into one array column, {@code IngredientParts}.
+ */
+final class RecipeRowMapper implements RowMapper<RecipeRecord> {
+
+    static final RecipeRowMapper INSTANCE = new RecipeRowMapper();
+
+    private RecipeRowMapper() {
+    }
+
+    @Override
+    public RecipeRecord mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return RecipeRecord.builder()
+                .RecipeId(rs.getLong("RecipeId"))
+                .name(rs.getString("Name"))
+                .authorId(rs.getLong("AuthorId"))
+                .authorName(rs.getString("AuthorName"))
+                .cookTime(rs.getString("CookTime"))
+                .prepTime(rs.getString("PrepTime"))
+                .totalTime(rs.getString("TotalTime"))
+                .datePublished(rs.getTimestamp("DatePublished"))
+                .description(rs.getString("Description"))
+                .recipeCategory(rs.getString("RecipeCategory"))
+                .recipeIngredientParts(parts(rs.getArray("IngredientParts")))
+                .aggregatedRating(rs.getFloat("AggregatedRating"))
+                .reviewCount(rs.getInt("ReviewCount"))
+                .calories(rs.getFloat("Calories"))
+                .fatContent(rs.getFloat("FatContent"))
+                .saturatedFatContent(rs.getFloat("SaturatedFatContent"))
+                .cholesterolContent(rs.getFloat("CholesterolContent"))
+                .sodiumContent(rs.getFloat("SodiumContent"))
+                .carbohydrateContent(rs.getFloat("CarbohydrateContent"))
+                .fiberContent(rs.getFloat("FiberContent"))
+                .sugarContent(rs.getFloat("SugarContent"))
+                .proteinContent(rs.getFloat("ProteinContent"))
+                .recipeServings(rs.getInt("RecipeServings"))
+                .recipeYield(rs.getString("RecipeYield"))
+                .build();
+    }
+
+    private static String[] parts(Array array) throws SQLException {
+        if (array == null) {
+            return new String[0];
+        }
+        try {
+            return (String[]) array.getArray();
+        } finally {
+            array.free();
+        }
+    }
+}
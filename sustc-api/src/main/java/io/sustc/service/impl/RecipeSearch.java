@@ -0,0 +1,82 @@
+package io.sustc.service.impl;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The filter of {@link io.sustc.service.RecipeService#searchRecipes}, as conditions on {@code recipes r}.
+ * <p>
+ * The keyword matches a substring of the name or of the description, ignoring case, written as
+ * {@code ILIKE '%keyword%'} on each column so the pg_trgm GIN indexes built by the import serve it: the planner
+ * ORs the two index scans and only rechecks the recipes they return, instead of reading every description.
+ * Keywords shorter than three characters have no trigram to look up and fall back to a scan. An empty keyword
+ * matches every recipe, names being never null, so it adds no condition at all.
+ * <p>
+ * Searches are equal when they match the same recipes for sure: keywords are compared ignoring case, and a
+ * missing keyword equals an empty one. They key the count cache of {@link RecipeCounts}.
+ */
+final class RecipeSearch {
+
+    private final String keyword;
+
+    private final String category;
+
+    private final Double minRating;
+
+    RecipeSearch(String keyword, String category, Double minRating) {
+        this.keyword = keyword;
+        this.category = category;
+        this.minRating = minRating;
+    }
+
+    /**
+     * @return whether the search keeps recipes by rating, so its matches change with the ratings
+     */
+    boolean filtersRating() {
+        return minRating != null;
+    }
+
+    /**
+     * Appends {@code AND ...} for every condition of the search to {@code sql}, and their values to {@code params}.
+     */
+    void where(StringBuilder sql, List<Object> params) {
+        if (keyword != null && !keyword.isEmpty()) {
+            String pattern = "%" + keyword + "%";
+            sql.append(" AND (r.Name ILIKE ? OR r.Description ILIKE ?)");
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (category != null) {
+            sql.append(" AND r.RecipeCategory = ?");
+            params.add(category);
+        }
+        if (minRating != null) {
+            sql.append(" AND r.AggregatedRating >= ?");
+            params.add(minRating);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RecipeSearch)) {
+            return false;
+        }
+        RecipeSearch that = (RecipeSearch) o;
+        return Objects.equals(normalizedKeyword(), that.normalizedKeyword())
+                && Objects.equals(category, that.category)
+                && Objects.equals(minRating, that.minRating);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(normalizedKeyword(), category, minRating);
+    }
+
+    private String normalizedKeyword() {
+        return keyword == null || keyword.isEmpty() ? null : keyword.toLowerCase(Locale.ROOT);
+    }
+}
@@ -25,6 +25,33 @@ public class RecipeServiceImpl implements RecipeService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private SearchConfig searchConfig;
+
+    @Autowired
+    private RecipeCounts recipeCounts;
+
+    /**
+     * Columns of a search result as {@link RecipeRowMapper} reads them, from {@code recipes r} and {@code users u}.
+     */
+    private static final String SEARCH_COLUMNS = """
+            r.RecipeId, r.Name, r.AuthorId, u.AuthorName, r.CookTime, r.PrepTime, r.TotalTime,
+                   r.DatePublished, r.Description, r.RecipeCategory, r.AggregatedRating, r.ReviewCount,
+                   r.Calories, r.FatContent, r.SaturatedFatContent, r.CholesterolContent, r.SodiumContent,
+                   r.CarbohydrateContent, r.FiberContent, r.SugarContent, r.ProteinContent, r.RecipeServings, r.RecipeYield,
+                   ARRAY(SELECT i.IngredientPart FROM recipe_ingredients i WHERE i.RecipeId = r.RecipeId
+                         ORDER BY lower(i.IngredientPart) COLLATE "C", i.IngredientPart COLLATE "C") AS IngredientParts""";
+
+    /**
+     * Joins the ids picked by a search, as subquery {@code page}, back to their recipes and authors.
+     */
+    private static final String SEARCH_PAGE_JOIN = """
+
+            ) page
+            JOIN recipes r ON r.RecipeId = page.RecipeId
+            LEFT JOIN users u ON r.AuthorId = u.AuthorId
+        """;
+
     @Override
     public String getNameFromID(long id) {
         String sql = "select Name from recipes where RecipeId = ?";
@@ -99,108 +126,144 @@ public class RecipeServiceImpl implements RecipeService {
     @Override
     public PageResult<RecipeRecord> searchRecipes(String keyword, String category, Double minRating,
                                                   Integer page, Integer size, String sort) {
-        if (page < 1 || size <= 0) throw new IllegalArgumentException("page must be bigger than 1 or size must be positive");
-
-        String keywordPattern = "%" + keyword + "%";
+        return searchRecipes(keyword, category, minRating, page, size, sort, null);
+    }
 
-        if (sort == null) {
-            sort = "date_desc";
-        }
+    @Override
+    public PageResult<RecipeRecord> searchRecipes(String keyword, String category, Double minRating,
+                                                  Integer page, Integer size, String sort, CountMode count) {
+        if (page < 1 || size <= 0) throw new IllegalArgumentException("page must be bigger than 1 or size must be positive");
 
-        String orderBy = switch (sort) {
-            case "date_desc" -> "r.DatePublished DESC, r.RecipeId desc";
-            case "rating_desc" -> "r.AggregatedRating DESC, r.RecipeId desc";
-            case "calories_asc" -> "r.Calories ASC, r.RecipeId desc";
-            default -> "r.RecipeId desc";
-        };
+        RecipeSearch search = new RecipeSearch(keyword, category, minRating);
+        String orderBy = searchOrder(sort).orderBy();
+        CountMode mode = count != null ? count : searchConfig.getCountMode();
         PageResult<RecipeRecord> recipeRecords = new PageResult<>();
         int offset = (page - 1) * size;
         List<Object> params = new ArrayList<>();
-        List<Object> countParams = new ArrayList<>();
 
-        StringBuilder sql1 = new StringBuilder("""
-            SELECT r.RecipeId, r.Name, r.AuthorId, u.AuthorName, r.CookTime, r.PrepTime, r.TotalTime,
-                   r.DatePublished, r.Description, r.RecipeCategory, r.AggregatedRating, r.ReviewCount,
-                   r.Calories, r.FatContent, r.SaturatedFatContent, r.CholesterolContent, r.SodiumContent,
-                   r.CarbohydrateContent, r.FiberContent, r.SugarContent, r.ProteinContent, r.RecipeServings, r.RecipeYield
-            FROM recipes r
-            LEFT JOIN users u ON r.AuthorId = u.AuthorId
-            WHERE 1=1
+        long generation = recipeCounts.generation();
+        Long known = switch (mode) {
+            case CACHED -> recipeCounts.cached(search);
+            case ESTIMATED -> recipeCounts.estimate(search);
+            default -> null;
+        };
+        // Only counted here if no count is known yet, and one is asked for at all
+        boolean counted = known == null && mode != CountMode.HAS_NEXT;
+        int limit = mode == CountMode.HAS_NEXT ? size + 1 : size;
+
+        // One statement for the whole page: the inner query picks the ids of the page and counts every match
+        // with a window, which only has to keep the id and the sort keys of each match; the outer one joins
+        // the page back to its recipes and authors and collects the ingredients of each into an array,
+        // ordered as String.CASE_INSENSITIVE_ORDER would.
+        StringBuilder sql1 = new StringBuilder("SELECT " + SEARCH_COLUMNS + (counted ? ", page.Total" : ""));
+        sql1.append("""
+
+            FROM (
+                SELECT r.RecipeId
         """);
+        sql1.append(counted ? ", count(*) OVER () AS Total" : "");
+        sql1.append("""
 
-        if (keyword != null) {
-            sql1.append(" AND (r.name ilike ? OR r.description ilike ?)");
-            params.add(keywordPattern);
-            params.add(keywordPattern);
-        }
-
-        if (category != null) {
-            sql1.append(" AND r.RecipeCategory = ?");
-            params.add(category);
-        }
-
-        if (minRating != null) {
-            sql1.append(" AND r.AggregatedRating >= ?");
-            params.add(minRating);
-        }
-
+                FROM recipes r
+                WHERE 1=1
+        """);
+        search.where(sql1, params);
         sql1.append(" ORDER BY ").append(orderBy);
         sql1.append(" LIMIT ? OFFSET ?");
-        params.add(size);
+        params.add(limit);
         params.add(offset);
+        sql1.append(SEARCH_PAGE_JOIN);
+        sql1.append(" ORDER BY ").append(orderBy);
 
-        try {
-            List<RecipeRecord> recipeList = jdbcTemplate.query(
-                    sql1.toString(),
-                    new BeanPropertyRowMapper<>(RecipeRecord.class),
-                    params.toArray()
-            );
-            recipeRecords.setItems(recipeList);
-        } catch (EmptyResultDataAccessException e) {
-            recipeRecords.setItems(null);
-        }
+        long[] total = {0};
+        List<RecipeRecord> recipeList = jdbcTemplate.query(sql1.toString(), (rs, rowNum) -> {
+            if (counted) {
+                total[0] = rs.getLong("Total");
+            }
+            return RecipeRowMapper.INSTANCE.mapRow(rs, rowNum);
+        }, params.toArray());
+        recipeRecords.setPage(page);
+        recipeRecords.setSize(size);
 
-        String sql2 = "SELECT IngredientPart FROM recipe_ingredients WHERE RecipeId = ?";
-        if (recipeRecords.getItems() != null && !recipeRecords.getItems().isEmpty()) {
-            for (RecipeRecord record : recipeRecords.getItems()) {
-                long recipeId = record.getRecipeId();
-                List<String> ingredientParts = jdbcTemplate.query(
-                        sql2,
-                        (rs, rowNum) -> rs.getString("IngredientPart"),
-                        recipeId
-                );
-                ingredientParts.sort(String.CASE_INSENSITIVE_ORDER);
-                record.setRecipeIngredientParts(ingredientParts.toArray(new String[0]));
+        if (mode == CountMode.HAS_NEXT) {
+            boolean hasNext = recipeList.size() > size;
+            if (hasNext) {
+                recipeList = recipeList.subList(0, size);
+            }
+            // Past the last match the offset says nothing, so that page is counted
+            total[0] = recipeList.isEmpty() && offset > 0 ? recipeCounts.exact(search)
+                    : offset + recipeList.size() + (hasNext ? 1 : 0);
+        } else if (known != null) {
+            total[0] = known;
+        } else {
+            // A page past the last match has no row to carry the count, only then is it asked for on its own
+            if (recipeList.isEmpty() && offset > 0) {
+                total[0] = recipeCounts.exact(search);
+            }
+            if (mode == CountMode.CACHED) {
+                recipeCounts.put(search, total[0], generation);
             }
         }
+        recipeRecords.setItems(recipeList);
+        recipeRecords.setTotal(total[0]);
+        return recipeRecords;
+    }
 
-        recipeRecords.setPage(page);
-        recipeRecords.setSize(size);
+    @Override
+    public CursorPage<RecipeRecord> searchRecipesAfter(String keyword, String category, Double minRating,
+                                                       String cursor, int size, String sort) {
+        if (size <= 0) throw new IllegalArgumentException("size must be positive");
 
-        StringBuilder countSql = new StringBuilder(
-                "SELECT count(*) FROM recipes r WHERE 1=1"
-        );
+        RecipeSearch search = new RecipeSearch(keyword, category, minRating);
+        Keyset order = searchOrder(sort);
+        List<Object> params = new ArrayList<>();
 
-        if (keyword != null) {
-            countSql.append(" AND (r.name ilike ? OR r.description ilike ?)");
-            countParams.add(keywordPattern);
-            countParams.add(keywordPattern);
-        }
+        // Same statement as a numbered page without the count, the inner query seeking past the cursor instead
+        // of skipping an offset. One row more than the page tells whether there is a next one.
+        StringBuilder sql = new StringBuilder("SELECT " + SEARCH_COLUMNS + ", " + order.sortKey());
+        sql.append("""
 
-        if (category != null) {
-            countSql.append(" AND r.RecipeCategory = ?");
-            countParams.add(category);
-        }
-        if (minRating != null) {
-            countSql.append(" AND r.AggregatedRating >= ?");
-            countParams.add(minRating);
+            FROM (
+                SELECT r.RecipeId
+                FROM recipes r
+                WHERE 1=1
+        """);
+        search.where(sql, params);
+        order.seek(cursor, sql, params);
+        sql.append(" ORDER BY ").append(order.orderBy());
+        sql.append(" LIMIT ?");
+        params.add(size + 1);
+        sql.append(SEARCH_PAGE_JOIN);
+        sql.append(" ORDER BY ").append(order.orderBy());
+
+        List<String> sortKeys = new ArrayList<>();
+        List<RecipeRecord> recipeList = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            sortKeys.add(rs.getString("SortKey"));
+            return RecipeRowMapper.INSTANCE.mapRow(rs, rowNum);
+        }, params.toArray());
+
+        CursorPage<RecipeRecord> recipeRecords = new CursorPage<>();
+        recipeRecords.setSize(size);
+        if (recipeList.size() > size) {
+            recipeList = recipeList.subList(0, size);
+            recipeRecords.setNextCursor(order.cursor(sortKeys.get(size - 1), recipeList.get(size - 1).getRecipeId()));
         }
-
-        int total = jdbcTemplate.queryForObject(countSql.toString(), Integer.class, countParams.toArray());
-        recipeRecords.setTotal(total);
+        recipeRecords.setItems(recipeList);
         return recipeRecords;
     }
 
+    private static Keyset searchOrder(String sort) {
+        if (sort == null) {
+            sort = "date_desc";
+        }
+        return switch (sort) {
+            case "date_desc" -> new Keyset(sort, "r.DatePublished", "timestamp", true, "r.RecipeId");
+            case "rating_desc" -> new Keyset(sort, "r.AggregatedRating", "numeric", true, "r.RecipeId");
+            case "calories_asc" -> new Keyset(sort, "r.Calories", "numeric", false, "r.RecipeId");
+            default -> new Keyset("id_desc", null, null, true, "r.RecipeId");
+        };
+    }
+
     @Override
     public long createRecipe(RecipeRecord dto, AuthInfo auth) {
         String sql1 = "select max(RecipeId) from recipes";
@@ -261,6 +324,7 @@ public class RecipeServiceImpl implements RecipeService {
                 dto.getRecipeServings(),
                 dto.getRecipeYield()
         );
+        recipeCounts.invalidate();
 
         return max_id;
     }
@@ -302,6 +366,7 @@ public class RecipeServiceImpl implements RecipeService {
         if (rows == 0) {
             throw new IllegalArgumentException("recipe does not exist");
         }
+        recipeCounts.invalidate();
     }
 
     @Override
@@ -439,10 +504,9 @@ public class RecipeServiceImpl implements RecipeService {
     @Override
     public List<Map<String, Object>> getTop3MostComplexRecipesByIngredients() {
         String sql = """
-            select c.recipeId as RecipeId, r.name as Name, cnt as IngredientCount from recipes r inner join
-                (select RecipeId, count(*) as cnt from recipe_ingredients
-                group by RecipeId order by cnt desc, recipeId limit 3) as c
-                on r.recipeId = c.recipeId;
+            select RecipeId, Name, IngredientCnt as IngredientCount from recipes
+                where IngredientCnt > 0
+                order by IngredientCnt desc, RecipeId limit 3;
         """;
         List<Map<String, Object>> map;
         try {
@@ -1,6 +1,7 @@
 package io.sustc.service.impl;
 
 import io.sustc.dto.AuthInfo;
+import io.sustc.dto.CursorPage;
 import io.sustc.dto.PageResult;
 import io.sustc.dto.RecipeRecord;
 import io.sustc.dto.ReviewRecord;
@@ -28,6 +29,9 @@ public class ReviewServiceImpl implements ReviewService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private RecipeCounts recipeCounts;
+
     @Override
     @Transactional
     public long addReview(AuthInfo auth, long recipeId, int rating, String review) {
@@ -76,10 +80,11 @@ public class ReviewServiceImpl implements ReviewService {
         );
 
         String sql5 = "update recipes set AggregatedRating = " +
-                "round((select avg(Rating) from reviews " +
-                "where RecipeId = ?), 3), ReviewCount = ReviewCount + 1 where RecipeId = ?;";
+                "round((RatingSum + ?)::numeric / (ReviewCnt + 1), 3), ReviewCount = ReviewCount + 1, " +
+                "ReviewCnt = ReviewCnt + 1, RatingSum = RatingSum + ? where RecipeId = ?;";
 
-        jdbcTemplate.update(sql5, recipeId, recipeId);
+        jdbcTemplate.update(sql5, rating, rating, recipeId);
+        recipeCounts.invalidateRatings();
         return max_id;
     }
 
@@ -116,6 +121,10 @@ public class ReviewServiceImpl implements ReviewService {
             throw new IllegalArgumentException("Recipe does not exist");
         }
 
+        String sql5 = "update recipes r set RatingSum = r.RatingSum + ? - v.Rating " +
+                "from reviews v where v.ReviewId = ? and r.RecipeId = v.RecipeId";
+        jdbcTemplate.update(sql5, rating, reviewId);
+
         String sql3 = "update reviews set rating = ?, review = ? where ReviewId = ?;";
         jdbcTemplate.update(sql3, rating, review, reviewId);
 
@@ -123,6 +132,7 @@ public class ReviewServiceImpl implements ReviewService {
                 "round((select avg(Rating) from reviews " +
                 "where RecipeId = ?), 3);";
         jdbcTemplate.update(sql4, recipeId);
+        recipeCounts.invalidateRatings();
     }
 
     @Override
@@ -172,25 +182,26 @@ public class ReviewServiceImpl implements ReviewService {
                     reviewId
         );
 
-        String sql4 = "delete from reviews where reviewId = ?";
-        jdbcTemplate.update(sql4,
+        String sql4 = "delete from reviews where reviewId = ? returning rating";
+        int deletedRating = jdbcTemplate.queryForObject(sql4, Integer.class,
                 reviewId
         );
 
         String sql5 = """
                 update recipes
                     set
-                        reviewCount = (
-                            select count(*) from reviews where recipeId = ?
-                        ),
+                        reviewCount = ReviewCnt - 1,
                         aggregatedRating = coalesce(
-                            (select avg(rating) from reviews where recipeId = ?),
+                            (RatingSum - ?)::numeric / nullif(ReviewCnt - 1, 0),
                             0
-                        )
+                        ),
+                        ReviewCnt = ReviewCnt - 1,
+                        RatingSum = RatingSum - ?
                     where recipeId = ?
                 """;
 
-        jdbcTemplate.update(sql5, recipeId, recipeId, recipeId);
+        jdbcTemplate.update(sql5, deletedRating, deletedRating, recipeId);
+        recipeCounts.invalidateRatings();
     }
 
     @Override
@@ -232,9 +243,11 @@ public class ReviewServiceImpl implements ReviewService {
         }
 
         String sql3 = "INSERT INTO review_likes (ReviewId, AuthorId) VALUES (?, ?) ON CONFLICT DO NOTHING";
-        jdbcTemplate.update(sql3, reviewId, auth.getAuthorId());
+        if (jdbcTemplate.update(sql3, reviewId, auth.getAuthorId()) > 0) {
+            jdbcTemplate.update("update reviews set LikeCnt = LikeCnt + 1 where ReviewId = ?", reviewId);
+        }
 
-        String sql4 = "select count(*) from review_likes where reviewId = ?";
+        String sql4 = "select LikeCnt from reviews where reviewId = ?";
         return jdbcTemplate.queryForObject(sql4, Long.class, reviewId);
     }
 
@@ -278,9 +291,10 @@ public class ReviewServiceImpl implements ReviewService {
         }
 
         String sql3 = "delete from review_likes where AuthorId = ? and ReviewId = ?";
-        jdbcTemplate.update(sql3, auth.getAuthorId(), reviewId);
+        int removed = jdbcTemplate.update(sql3, auth.getAuthorId(), reviewId);
+        jdbcTemplate.update("update reviews set LikeCnt = LikeCnt - ? where ReviewId = ?", removed, reviewId);
 
-        String sql4 = "select count(*) from review_likes where reviewId = ?";
+        String sql4 = "select LikeCnt from reviews where reviewId = ?";
         return jdbcTemplate.queryForObject(sql4, Long.class, reviewId);
     }
 
@@ -299,18 +313,7 @@ public class ReviewServiceImpl implements ReviewService {
             throw new IllegalArgumentException("Invalid recipeId");
         }
 
-        String orderBy;
-        if (sort == null || sort.equals("date_desc")) {
-            orderBy = "r.DateModified DESC";
-        } else if (sort.equals("date_asc")) {
-            orderBy = "r.DateModified ASC";
-        } else if (sort.equals("likes_desc")) {
-            orderBy = "like_cnt DESC";
-        } else if (sort.equals("likes_asc")) {
-            orderBy = "like_cnt ASC";
-        } else {
-            orderBy = "r.DateModified DESC";
-        }
+        String orderBy = reviewOrder(sort).orderBy();
 
         int offset = (page - 1) * size;
 
@@ -324,19 +327,14 @@ public class ReviewServiceImpl implements ReviewService {
                    r.review,
                    r.dateSubmitted,
                    r.dateModified,
-                   COALESCE(l.like_cnt, 0) AS like_cnt
+                   r.LikeCnt AS like_cnt
             FROM reviews r
             LEFT JOIN users u ON r.authorId = u.authorId
-            LEFT JOIN (
-                SELECT reviewId, COUNT(*) AS like_cnt
-                FROM review_likes
-                GROUP BY reviewId
-            ) l ON r.reviewId = l.reviewId
             WHERE r.recipeId = ?
         """;
 
         String sql = baseSql
-                + " ORDER BY " + orderBy + ", r.reviewId DESC"
+                + " ORDER BY " + orderBy
                 + " LIMIT ? OFFSET ?";
 
         List<ReviewRecord> reviewRecordList = jdbcTemplate.query(
@@ -348,7 +346,93 @@ public class ReviewServiceImpl implements ReviewService {
         );
         reviewRecords.setItems(reviewRecordList);
 
-        List<Long> reviewIds = reviewRecords.getItems()
+        fillLikes(reviewRecordList);
+
+        String sql2 = "select count(*) from reviews where recipeId = ?";
+        long total = jdbcTemplate.queryForObject(sql2, Long.class, recipeId);
+
+        reviewRecords.setTotal(total);
+        reviewRecords.setSize(size);
+        reviewRecords.setPage(page);
+
+        return reviewRecords;
+    }
+
+    @Override
+    public CursorPage<ReviewRecord> listByRecipeAfter(long recipeId, String cursor, int size, String sort) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        Integer cnt = jdbcTemplate.queryForObject(
+                "select count(*) from recipes where recipeId = ?",
+                Integer.class,
+                recipeId
+        );
+        if (cnt == null || cnt == 0) {
+            throw new IllegalArgumentException("Invalid recipeId");
+        }
+
+        Keyset order = reviewOrder(sort);
+        List<Object> params = new ArrayList<>();
+        params.add(recipeId);
+        StringBuilder sql = new StringBuilder("""
+            SELECT r.reviewId,
+                   r.recipeId,
+                   r.authorId,
+                   u.authorName,
+                   r.rating,
+                   r.review,
+                   r.dateSubmitted,
+                   r.dateModified,
+                   r.LikeCnt AS like_cnt,
+        """);
+        sql.append("           ").append(order.sortKey()).append("""
+
+            FROM reviews r
+            LEFT JOIN users u ON r.authorId = u.authorId
+            WHERE r.recipeId = ?
+        """);
+        order.seek(cursor, sql, params);
+        // One row more than the page tells whether there is a next one
+        sql.append(" ORDER BY ").append(order.orderBy()).append(" LIMIT ?");
+        params.add(size + 1);
+
+        BeanPropertyRowMapper<ReviewRecord> mapper = new BeanPropertyRowMapper<>(ReviewRecord.class);
+        List<String> sortKeys = new ArrayList<>();
+        List<ReviewRecord> reviewRecordList = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            sortKeys.add(rs.getString("SortKey"));
+            return mapper.mapRow(rs, rowNum);
+        }, params.toArray());
+
+        CursorPage<ReviewRecord> reviewRecords = new CursorPage<>();
+        reviewRecords.setSize(size);
+        if (reviewRecordList.size() > size) {
+            reviewRecordList = reviewRecordList.subList(0, size);
+            reviewRecords.setNextCursor(order.cursor(sortKeys.get(size - 1), reviewRecordList.get(size - 1).getReviewId()));
+        }
+        fillLikes(reviewRecordList);
+        reviewRecords.setItems(reviewRecordList);
+        return reviewRecords;
+    }
+
+    private static Keyset reviewOrder(String sort) {
+        if (sort == null) {
+            sort = "date_desc";
+        }
+        return switch (sort) {
+            case "date_asc" -> new Keyset(sort, "r.DateModified", "timestamp", false, "r.reviewId");
+            case "likes_desc" -> new Keyset(sort, "r.LikeCnt", "integer", true, "r.reviewId");
+            case "likes_asc" -> new Keyset(sort, "r.LikeCnt", "integer", false, "r.reviewId");
+            default -> new Keyset("date_desc", "r.DateModified", "timestamp", true, "r.reviewId");
+        };
+    }
+
+    /**
+     * Sets the likes of every review in {@code reviews}, with one query for all of them.
+     */
+    private void fillLikes(List<ReviewRecord> reviews) {
+        List<Long> reviewIds = reviews
                 .stream()
                 .map(ReviewRecord::getReviewId)
                 .toList();
@@ -372,20 +456,11 @@ public class ReviewServiceImpl implements ReviewService {
                 likeMap.computeIfAbsent(reviewId, k -> new ArrayList<>()).add(authorId);
             }, reviewIds.toArray());
 
-            for (ReviewRecord r : reviewRecords.getItems()) {
+            for (ReviewRecord r : reviews) {
                 List<Long> likes = likeMap.getOrDefault(r.getReviewId(), List.of());
                 r.setLikes(likes.stream().mapToLong(Long::longValue).toArray());
             }
         }
-
-        String sql2 = "select count(*) from reviews where recipeId = ?";
-        long total = jdbcTemplate.queryForObject(sql2, Long.class, recipeId);
-
-        reviewRecords.setTotal(total);
-        reviewRecords.setSize(size);
-        reviewRecords.setPage(page);
-
-        return reviewRecords;
     }
 
     @Override
@@ -410,6 +485,7 @@ public class ReviewServiceImpl implements ReviewService {
                 """;
 
         jdbcTemplate.update(sql3, recipeId, recipeId, recipeId);
+        recipeCounts.invalidateRatings();
 
         String querySql = """
                     select
@@ -0,0 +1,38 @@
+package io.sustc.service.impl;
+
+import io.sustc.dto.CountMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs of the paged searches, bound from the {@code sustc.search} section of {@code application.yml}.
+ * Every property has a default, so searches work without any configuration.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sustc.search")
+@Data
+public class SearchConfig {
+
+    /**
+     * How searches that do not ask for a {@link CountMode} count their matches.
+     */
+    private CountMode countMode = CountMode.EXACT;
+
+    /**
+     * How long a {@link CountMode#CACHED} count is reused, unless a write drops it first.
+     */
+    private Duration countTtl = Duration.ofSeconds(30);
+
+    /**
+     * Filters kept in the count cache at most; the cache starts over once it is full.
+     */
+    private int countCacheSize = 10_000;
+
+    /**
+     * Matches the planner has to expect before {@link CountMode#ESTIMATED} takes its estimate instead of counting.
+     */
+    private long estimateThreshold = 10_000;
+}
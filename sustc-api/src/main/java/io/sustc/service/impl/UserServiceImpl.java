@@ -11,6 +11,7 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
@@ -35,6 +36,27 @@ public class UserServiceImpl implements UserService {
     private JdbcTemplate jdbcTemplate;
     private static final String SALT = "mySecretSalt";
 
+    private static final Keyset FEED_ORDER = new Keyset("date_desc", "r.datepublished", "timestamp", true, "r.recipeid");
+
+    private static final RowMapper<FeedItem> FEED_ITEM = (rs, rowNum) -> {
+        FeedItem item = new FeedItem();
+        item.setRecipeId(rs.getLong("RecipeId"));
+        item.setName(rs.getString("Name"));
+        item.setAuthorId(rs.getLong("AuthorId"));
+        item.setAuthorName(rs.getString("AuthorName"));
+
+        Timestamp ts = rs.getTimestamp("DatePublished");
+        item.setDatePublished(ts == null ? null
+                : ts.toLocalDateTime()
+                        .atZone(ZoneOffset.UTC)
+                        .toInstant()
+        );
+
+        item.setAggregatedRating(rs.getDouble("AggregatedRating"));
+        item.setReviewCount(rs.getInt("ReviewCount"));
+        return item;
+    };
+
     @Override
     public long register(RegisterUserReq req) {
         String sql1 = "select count(*) from users where AuthorName = ?";
@@ -107,6 +129,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public boolean deleteAccount(AuthInfo auth, long userId) {
         if (auth == null || auth.getAuthorId() != userId) {
             throw new SecurityException("not author");
@@ -126,6 +149,15 @@ public class UserServiceImpl implements UserService {
             throw new SecurityException("user doesn't exist");
         }
 
+        String sql4 = "update users set FollowerCnt = FollowerCnt - 1 " +
+                "where AuthorId in (select FollowingId from user_follows where FollowerId = ?)";
+        String sql5 = "update users set FollowingCnt = FollowingCnt - 1 " +
+                "where AuthorId in (select FollowerId from user_follows where FollowingId = ?)";
+        String sql6 = "update users set FollowerCnt = 0, FollowingCnt = 0 where AuthorId = ?";
+        jdbcTemplate.update(sql4, userId);
+        jdbcTemplate.update(sql5, userId);
+        jdbcTemplate.update(sql6, userId);
+
         String sql3 = "delete from user_follows where FollowerId = ? or FollowingId = ?";
         jdbcTemplate.update(sql3, userId, userId);
 
@@ -133,6 +165,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public boolean follow(AuthInfo auth, long followeeId) {
         if (auth == null || auth.getAuthorId() == followeeId) {
             throw new SecurityException("not author or repeat");
@@ -155,17 +188,26 @@ public class UserServiceImpl implements UserService {
         try {
             jdbcTemplate.queryForObject(sql2, Long.class, auth.getAuthorId());
             String sql3 = "delete from user_follows where FollowerId = ? and FollowingId = ?";
-            jdbcTemplate.update(sql3, auth.getAuthorId(), followeeId);
+            if (jdbcTemplate.update(sql3, auth.getAuthorId(), followeeId) > 0) {
+                updateFollowCounts(auth.getAuthorId(), followeeId, -1);
+            }
 
             return true;
         } catch (Exception e) {
             String sql4 = "INSERT INTO user_follows(FollowerId, FollowingId) VALUES (?, ?) ON CONFLICT DO NOTHING";
-            jdbcTemplate.update(sql4, auth.getAuthorId(), followeeId);
+            if (jdbcTemplate.update(sql4, auth.getAuthorId(), followeeId) > 0) {
+                updateFollowCounts(auth.getAuthorId(), followeeId, 1);
+            }
 
             return true;
         }
     }
 
+    private void updateFollowCounts(long followerId, long followeeId, int delta) {
+        jdbcTemplate.update("update users set FollowingCnt = FollowingCnt + ? where AuthorId = ?", delta, followerId);
+        jdbcTemplate.update("update users set FollowerCnt = FollowerCnt + ? where AuthorId = ?", delta, followeeId);
+    }
+
 
     @Override
     public UserRecord getById(long userId) {
@@ -230,6 +272,87 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public PageResult<FeedItem> feed(AuthInfo auth, int page, int size, String category) {
+        checkActive(auth);
+
+        int offset = (page - 1) * size;
+        String sql2 = feedSql(category != null ? "and r.recipecategory = ?" : "");
+
+        PageResult<FeedItem> feedItemPageResult = new PageResult<>();
+
+        List<FeedItem> feedItems;
+        if (category != null) {
+            feedItems = jdbcTemplate.query(
+                    sql2,
+                    FEED_ITEM,
+                    auth.getAuthorId(),
+                    category,
+                    size,
+                    offset
+            );
+        } else {
+            feedItems = jdbcTemplate.query(
+                    sql2,
+                    FEED_ITEM,
+                    auth.getAuthorId(),
+                    size,
+                    offset
+            );
+        }
+
+        feedItemPageResult.setItems(feedItems);
+        feedItemPageResult.setSize(size);
+        feedItemPageResult.setPage(page);
+
+        String sql3 = "select count(*) from recipes where AuthorId in " +
+                "(select followingId from user_follows where followerId = ?)";
+
+        long total;
+        if (category != null) {
+            sql3 = sql3 + " and RecipeCategory = ?;";
+            total = jdbcTemplate.queryForObject(sql3, Long.class, auth.getAuthorId(), category);
+        } else {
+            total = jdbcTemplate.queryForObject(sql3, Long.class, auth.getAuthorId());
+        }
+
+        feedItemPageResult.setTotal(total);
+
+        return feedItemPageResult;
+    }
+
+    @Override
+    public CursorPage<FeedItem> feedAfter(AuthInfo auth, String cursor, int size, String category) {
+        checkActive(auth);
+        size = Math.max(1, Math.min(size, 200));
+
+        List<Object> params = new ArrayList<>();
+        params.add(auth.getAuthorId());
+        StringBuilder conditions = new StringBuilder();
+        if (category != null) {
+            conditions.append("and r.recipecategory = ?");
+            params.add(category);
+        }
+        FEED_ORDER.seek(cursor, conditions, params);
+        // One row more than the page tells whether there is a next one
+        params.add(size + 1);
+        params.add(0);
+
+        List<String> sortKeys = new ArrayList<>();
+        List<FeedItem> feedItems = jdbcTemplate.query(feedSql(conditions.toString()), (rs, rowNum) -> {
+            sortKeys.add(rs.getString("SortKey"));
+            return FEED_ITEM.mapRow(rs, rowNum);
+        }, params.toArray());
+
+        CursorPage<FeedItem> feedItemPage = new CursorPage<>();
+        feedItemPage.setSize(size);
+        if (feedItems.size() > size) {
+            feedItems = feedItems.subList(0, size);
+            feedItemPage.setNextCursor(FEED_ORDER.cursor(sortKeys.get(size - 1), feedItems.get(size - 1).getRecipeId()));
+        }
+        feedItemPage.setItems(feedItems);
+        return feedItemPage;
+    }
+
+    private void checkActive(AuthInfo auth) {
         String sql1 = "select IsDeleted from users where authorId = ?";
         try {
             boolean isDeleted = jdbcTemplate.queryForObject(sql1, Boolean.class, auth.getAuthorId());
@@ -239,16 +362,23 @@ public class UserServiceImpl implements UserService {
         } catch (Exception e) {
             throw new SecurityException("error");
         }
+    }
 
-        int offset = (page - 1) * size;
-        String sql2 = """
+    /**
+     * The feed of the user given as first parameter, a page of recipes by the users they follow matching
+     * {@code conditions} on {@code recipes r}, with {@code limit ? offset ?} as the last two parameters.
+     */
+    private static String feedSql(String conditions) {
+        return """
 with feed_recipes as (
     select
         r.recipeid as "RecipeId",
         r.name as "Name",
         r.authorid as "AuthorId",
         u.authorname as "AuthorName",
-        r.datepublished as "DatePublished"
+        r.datepublished as "DatePublished",
+        r.reviewcnt as "ReviewCount",
+        %s
     from recipes r
     join users u on u.authorid = r.authorid
     where r.authorid in (
@@ -256,7 +386,7 @@ with feed_recipes as (
     )
       and u.isdeleted = false
       %s
-    order by r.datepublished desc, r.recipeid desc
+    order by %s
     limit ? offset ?
 ),
 mode_rating as (
@@ -272,12 +402,6 @@ mode_rating as (
     ) t
     where cnt = maxcnt
     group by recipeid
-),
-review_cnt as (
-    select recipeid, count(*) as reviewcount
-    from reviews
-    where recipeid in (select "RecipeId" from feed_recipes)
-    group by recipeid
 )
 select
     f."RecipeId",
@@ -286,109 +410,25 @@ select
     f."AuthorName",
     f."DatePublished",
     coalesce(m.aggregatedrating, 0.0) as "AggregatedRating",
-    coalesce(c.reviewcount, 0) as "ReviewCount"
+    f."ReviewCount",
+    f.SortKey
 from feed_recipes f
 left join mode_rating m on m.recipeid = f."RecipeId"
-left join review_cnt c on c.recipeid = f."RecipeId"
 order by f."DatePublished" desc, f."RecipeId" desc
-""".formatted(category != null ? "and r.recipecategory = ?" : "");
-
-        PageResult<FeedItem> feedItemPageResult = new PageResult<>();
-
-        List<FeedItem> feedItems;
-        if (category != null) {
-            feedItems = jdbcTemplate.query(
-                    sql2,
-                    (rs, rowNum) -> {
-                        FeedItem item = new FeedItem();
-                        item.setRecipeId(rs.getLong("RecipeId"));
-                        item.setName(rs.getString("Name"));
-                        item.setAuthorId(rs.getLong("AuthorId"));
-                        item.setAuthorName(rs.getString("AuthorName"));
-
-                        Timestamp ts = rs.getTimestamp("DatePublished");
-                        item.setDatePublished(
-                                ts.toLocalDateTime()
-                                        .atZone(ZoneOffset.UTC)
-                                        .toInstant()
-                        );
-
-                        item.setAggregatedRating(rs.getDouble("AggregatedRating"));
-                        item.setReviewCount(rs.getInt("ReviewCount"));
-                        return item;
-                    },
-                    auth.getAuthorId(),
-                    category,
-                    size,
-                    offset
-            );
-        } else {
-            feedItems = jdbcTemplate.query(
-                    sql2,
-                    (rs, rowNum) -> {
-                        FeedItem item = new FeedItem();
-                        item.setRecipeId(rs.getLong("RecipeId"));
-                        item.setName(rs.getString("Name"));
-                        item.setAuthorId(rs.getLong("AuthorId"));
-                        item.setAuthorName(rs.getString("AuthorName"));
-
-                        Timestamp ts = rs.getTimestamp("DatePublished");
-                        item.setDatePublished(
-                                ts.toLocalDateTime()
-                                        .atZone(ZoneOffset.UTC)
-                                        .toInstant()
-                        );
-
-                        item.setAggregatedRating(rs.getDouble("AggregatedRating"));
-                        item.setReviewCount(rs.getInt("ReviewCount"));
-                        return item;
-                    },
-                    auth.getAuthorId(),
-                    size,
-                    offset
-            );
-        }
-
-        feedItemPageResult.setItems(feedItems);
-        feedItemPageResult.setSize(size);
-        feedItemPageResult.setPage(page);
-
-        String sql3 = "select count(*) from recipes where AuthorId in " +
-                "(select followingId from user_follows where followerId = ?)";
-
-        long total;
-        if (category != null) {
-            sql3 = sql3 + " and RecipeCategory = ?;";
-            total = jdbcTemplate.queryForObject(sql3, Long.class, auth.getAuthorId(), category);
-        } else {
-            total = jdbcTemplate.queryForObject(sql3, Long.class, auth.getAuthorId());
-        }
-
-        feedItemPageResult.setTotal(total);
-
-        return feedItemPageResult;
+""".formatted(FEED_ORDER.sortKey(), conditions, FEED_ORDER.orderBy());
     }
 
     @Override
     public Map<String, Object> getUserWithHighestFollowRatio() {
         String sql1 = """
-                select u.AuthorId,
-                       u.AuthorName,
-                       fc.followerCount * 1.0 / fg.followingCount as Ratio
-                from users u
-                join (
-                    select FollowingId as AuthorId, count(*) as followerCount
-                    from user_follows
-                    group by FollowingId
-                ) fc on fc.AuthorId = u.AuthorId
-                join (
-                    select FollowerId as AuthorId, count(*) as followingCount
-                    from user_follows
-                    group by FollowerId
-                ) fg on fg.AuthorId = u.AuthorId
-                where u.IsDeleted = false
-                  and fg.followingCount > 0
-                order by Ratio desc, u.AuthorId asc
+                select AuthorId,
+                       AuthorName,
+                       FollowerCnt * 1.0 / FollowingCnt as Ratio
+                from users
+                where IsDeleted = false
+                  and FollowerCnt > 0
+                  and FollowingCnt > 0
+                order by Ratio desc, AuthorId asc
                 limit 1
                 """;
 
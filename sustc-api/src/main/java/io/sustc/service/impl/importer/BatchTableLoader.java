@@ -0,0 +1,299 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link TableLoader} for {@link ImportMode#BATCH}: plain {@code INSERT}
+ * statements sent in JDBC batches of {@link ImportConfig#getBatchSize()} rows.
+ * The records come through {@link ImportFilter}, so nothing can conflict and no row pays for a conflict check.
+ */
+@Component
+public class BatchTableLoader implements TableLoader {
+
+    @Autowired
+    private ImportConfig importConfig;
+
+    @Override
+    public long loadUsers(Connection conn, List<UserRecord> users, ImportCounters counters) {
+        JdbcTemplate jdbcTemplate = on(conn);
+        String sql = """
+        INSERT INTO users
+        (AuthorId, AuthorName, Gender, Age, Followers, Following, Password, IsDeleted,
+         FollowerCnt, FollowingCnt)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+        int batchSize = importConfig.getBatchSize();
+
+        for (int i = 0; i < users.size(); i += batchSize) {
+            List<UserRecord> sub =
+                    users.subList(i, Math.min(i + batchSize, users.size()));
+
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int idx) throws SQLException {
+                    UserRecord u = sub.get(idx);
+                    ps.setLong(1, u.getAuthorId());
+                    ps.setString(2, u.getAuthorName());
+                    ps.setString(3, u.getGender());
+                    ps.setInt(4, u.getAge());
+                    ps.setInt(5, u.getFollowers());
+                    ps.setInt(6, u.getFollowing());
+                    ps.setString(7, u.getPassword());
+                    ps.setBoolean(8, u.isDeleted());
+                    ps.setInt(9, counters.followers(u.getAuthorId()));
+                    ps.setInt(10, counters.following(u.getAuthorId()));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return sub.size();
+                }
+            });
+        }
+
+        return users.size();
+    }
+
+    @Override
+    public long loadRecipes(Connection conn, List<RecipeRecord> recipes, ImportCounters counters) {
+        JdbcTemplate jdbcTemplate = on(conn);
+        String sql = """
+        INSERT INTO recipes
+        (RecipeId, Name, AuthorId, CookTime, PrepTime, TotalTime,
+         DatePublished, Description, RecipeCategory,
+         AggregatedRating, ReviewCount,
+         Calories, FatContent, SaturatedFatContent,
+         CholesterolContent, SodiumContent,
+         CarbohydrateContent, FiberContent, SugarContent,
+         ProteinContent, RecipeServings, RecipeYield,
+         ReviewCnt, RatingSum, IngredientCnt)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+        int batchSize = importConfig.getBatchSize();
+
+        for (int i = 0; i < recipes.size(); i += batchSize) {
+            List<RecipeRecord> sub =
+                    recipes.subList(i, Math.min(i + batchSize, recipes.size()));
+
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int idx) throws SQLException {
+                    RecipeRecord r = sub.get(idx);
+                    ps.setLong(1, r.getRecipeId());
+                    ps.setString(2, r.getName());
+                    ps.setLong(3, r.getAuthorId());
+                    ps.setString(4, r.getCookTime());
+                    ps.setString(5, r.getPrepTime());
+                    ps.setString(6, r.getTotalTime());
+                    ps.setTimestamp(7, r.getDatePublished());
+                    ps.setString(8, r.getDescription());
+                    ps.setString(9, r.getRecipeCategory());
+                    ps.setFloat(10, r.getAggregatedRating());
+                    ps.setInt(11, r.getReviewCount());
+                    ps.setFloat(12, r.getCalories());
+                    ps.setFloat(13, r.getFatContent());
+                    ps.setFloat(14, r.getSaturatedFatContent());
+                    ps.setFloat(15, r.getCholesterolContent());
+                    ps.setFloat(16, r.getSodiumContent());
+                    ps.setFloat(17, r.getCarbohydrateContent());
+                    ps.setFloat(18, r.getFiberContent());
+                    ps.setFloat(19, r.getSugarContent());
+                    ps.setFloat(20, r.getProteinContent());
+                    ps.setInt(21, r.getRecipeServings());
+                    ps.setString(22, r.getRecipeYield());
+                    ps.setInt(23, counters.reviews(r.getRecipeId()));
+                    ps.setLong(24, counters.ratingSum(r.getRecipeId()));
+                    ps.setInt(25, counters.ingredients(r.getRecipeId()));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return sub.size();
+                }
+            });
+        }
+
+        return recipes.size();
+    }
+
+    @Override
+    public long loadReviews(Connection conn, List<ReviewRecord> reviews, ImportCounters counters) {
+        JdbcTemplate jdbcTemplate = on(conn);
+        String sql = """
+        INSERT INTO reviews
+        (ReviewId, RecipeId, AuthorId, Rating, Review, DateSubmitted, DateModified, LikeCnt)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+        int batchSize = importConfig.getBatchSize();
+
+        for (int i = 0; i < reviews.size(); i += batchSize) {
+            List<ReviewRecord> sub =
+                    reviews.subList(i, Math.min(i + batchSize, reviews.size()));
+
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int idx) throws SQLException {
+                    ReviewRecord r = sub.get(idx);
+                    ps.setLong(1, r.getReviewId());
+                    ps.setLong(2, r.getRecipeId());
+                    ps.setLong(3, r.getAuthorId());
+                    ps.setFloat(4, r.getRating());
+                    ps.setString(5, r.getReview());
+                    ps.setTimestamp(6, r.getDateSubmitted());
+                    ps.setTimestamp(7, r.getDateModified());
+                    ps.setInt(8, counters.likes(r.getReviewId()));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return sub.size();
+                }
+            });
+        }
+
+        return reviews.size();
+    }
+
+    @Override
+    public long loadRecipeIngredients(Connection conn, List<RecipeRecord> recipes) {
+        JdbcTemplate jdbcTemplate = on(conn);
+        String sql = "INSERT INTO recipe_ingredients (RecipeId, IngredientPart) VALUES (?, ?)";
+
+        // parts repeated within a recipe are dropped here, tables with deferred keys would keep them
+        List<Pair<Long, String>> pairs = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (RecipeRecord r : recipes) {
+            String[] parts = r.getRecipeIngredientParts();
+            if (parts == null) {
+                continue;
+            }
+            seen.clear();
+            for (String part : parts) {
+                if (seen.add(part)) {
+                    pairs.add(new Pair<>(r.getRecipeId(), part));
+                }
+            }
+        }
+
+        int batchSize = importConfig.getBatchSize();
+
+        for (int i = 0; i < pairs.size(); i += batchSize) {
+            List<Pair<Long, String>> sub = pairs.subList(i, Math.min(i + batchSize, pairs.size()));
+
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int idx) throws SQLException {
+                    Pair<Long, String> p = sub.get(idx);
+                    ps.setLong(1, p.getKey());
+                    ps.setString(2, p.getValue());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return sub.size();
+                }
+            });
+        }
+
+        return pairs.size();
+    }
+
+    @Override
+    public long loadReviewLikes(Connection conn, List<ReviewRecord> reviews) {
+        JdbcTemplate jdbcTemplate = on(conn);
+        String sql = "INSERT INTO review_likes (ReviewId, AuthorId) VALUES (?, ?)";
+
+        LongPairBuffer pairs = new LongPairBuffer(reviews.size());
+        for (ReviewRecord r: reviews) {
+            pairs.addDistinct(r.getReviewId(), r.getLikes());
+        }
+
+        int batchSize = importConfig.getBatchSize();
+
+        for (int i = 0; i < pairs.size(); i += batchSize) {
+            int from = i;
+            int to = Math.min(i + batchSize, pairs.size());
+
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int idx) throws SQLException {
+                    ps.setLong(1, pairs.left(from + idx));
+                    ps.setLong(2, pairs.right(from + idx));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return to - from;
+                }
+            });
+        }
+
+        return pairs.size();
+    }
+
+    @Override
+    public long loadUserFollows(Connection conn, List<UserRecord> users) {
+        JdbcTemplate jdbcTemplate = on(conn);
+        String sql = "INSERT INTO user_follows(FollowerId, FollowingId) VALUES (?, ?)";
+
+        LongPairBuffer pairs = new LongPairBuffer(users.size());
+        for (UserRecord u: users) {
+            pairs.addDistinct(u.getAuthorId(), u.getFollowingUsers());
+        }
+
+        int batchSize = importConfig.getBatchSize();
+
+        for (int i = 0; i < pairs.size(); i += batchSize) {
+            int from = i;
+            int to = Math.min(i + batchSize, pairs.size());
+
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int idx) throws SQLException {
+                    ps.setLong(1, pairs.left(from + idx));
+                    ps.setLong(2, pairs.right(from + idx));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return to - from;
+                }
+            });
+        }
+
+        return pairs.size();
+    }
+
+    /**
+     * Wraps {@code conn} without taking ownership of it, so the caller decides when to commit and close.
+     */
+    private static JdbcTemplate on(Connection conn) {
+        return new JdbcTemplate(new SingleConnectionDataSource(conn, true));
+    }
+
+    static class Pair<K, V> {
+        private final K key;
+        private final V value;
+        public Pair(K key, V value) { this.key = key; this.value = value; }
+        public K getKey() { return key; }
+        public V getValue() { return value; }
+    }
+}
@@ -0,0 +1,160 @@
+package io.sustc.service.impl.importer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reads the chunks of a streamed import on a thread of its own, at most {@link ImportConfig#getPipelineDepth()}
+ * chunks ahead of the loader. Pulling a chunk from the stream is what decodes and groups its records, so this
+ * work overlaps with the loading of the chunks before it instead of adding to it; once the queue is full the
+ * reader waits, which bounds the decoded records held in memory.
+ * <p>
+ * Both sides time themselves: how long the reader spent reading chunks and waiting for room in the queue, and
+ * how long the loader waited for a chunk. A loader that rarely waits is held up by the database, a reader that
+ * rarely waits by decoding. The times are complete once the pipeline is closed.
+ * <p>
+ * With a depth of {@code 0} the chunks are read on the loading thread, as they would be without a pipeline.
+ */
+final class ChunkPipeline implements Iterator<ImportData>, AutoCloseable {
+
+    /**
+     * Queued after the last chunk.
+     */
+    private static final Object END = new Object();
+
+    private final Iterator<ImportData> chunks;
+
+    private final BlockingQueue<Object> queue;
+
+    private final Thread reader;
+
+    private Object next;
+
+    private long readNanos;
+
+    private long readerWaitNanos;
+
+    private long loaderWaitNanos;
+
+    ChunkPipeline(Stream<ImportData> chunks, int depth) {
+        this.chunks = chunks.iterator();
+        if (depth <= 0) {
+            this.queue = null;
+            this.reader = null;
+            return;
+        }
+        this.queue = new ArrayBlockingQueue<>(depth);
+        this.reader = new Thread(this::read, "import-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = reader == null ? readInline() : take();
+        }
+        if (next instanceof RuntimeException) {
+            throw (RuntimeException) next;
+        }
+        if (next instanceof Error) {
+            throw (Error) next;
+        }
+        return next != END;
+    }
+
+    @Override
+    public ImportData next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ImportData chunk = (ImportData) next;
+        next = null;
+        return chunk;
+    }
+
+    /**
+     * Stops the reader, waiting for the chunk it is reading, if any.
+     */
+    @Override
+    public void close() {
+        if (reader == null) {
+            return;
+        }
+        reader.interrupt();
+        boolean interrupted = false;
+        while (reader.isAlive()) {
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the time spent pulling chunks from the stream
+     */
+    long getReadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readNanos);
+    }
+
+    /**
+     * @return the time the reader waited for the loader to take a chunk
+     */
+    long getReaderWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readerWaitNanos);
+    }
+
+    /**
+     * @return the time the loader waited for the reader to deliver a chunk
+     */
+    long getLoaderWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(loaderWaitNanos);
+    }
+
+    private Object readInline() {
+        long start = System.nanoTime();
+        try {
+            return chunks.hasNext() ? chunks.next() : END;
+        } finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+    private Object take() {
+        long start = System.nanoTime();
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            loaderWaitNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void read() {
+        try {
+            Object chunk;
+            do {
+                chunk = readInline();
+                long start = System.nanoTime();
+                queue.put(chunk);
+                readerWaitNanos += System.nanoTime() - start;
+            } while (chunk != END);
+        } catch (InterruptedException e) {
+            // closed by the loader
+        } catch (RuntimeException | Error e) {
+            queue.clear();
+            queue.offer(e);
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import io.sustc.dto.column.DictionaryColumn;
+import io.sustc.dto.column.LongListColumn;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.TextColumn;
+import io.sustc.dto.column.TimestampColumn;
+import io.sustc.dto.column.UserColumns;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link TableLoader} for {@link ImportMode#COPY}: one binary {@code COPY} stream per call.
+ * <p>
+ * {@code COPY} has no {@code ON CONFLICT} clause, so link rows repeated inside one record
+ * (the same ingredient part twice, a user liking a review twice) are collapsed here.
+ * Repeated keys and unknown references are dropped before the load by {@link ImportFilter}.
+ * <p>
+ * Blocks of columns are written straight from their arrays: text goes out as the UTF-8 bytes it is stored
+ * as, and neither records nor strings are built for the rows.
+ */
+@Component
+public class CopyTableLoader implements TableLoader {
+
+    private static final String[] USERS = {
+            "AuthorId", "AuthorName", "Gender", "Age", "Followers", "Following", "Password", "IsDeleted",
+            "FollowerCnt", "FollowingCnt"};
+
+    private static final String[] RECIPES = {
+            "RecipeId", "Name", "AuthorId", "CookTime", "PrepTime", "TotalTime",
+            "DatePublished", "Description", "RecipeCategory",
+            "AggregatedRating", "ReviewCount",
+            "Calories", "FatContent", "SaturatedFatContent",
+            "CholesterolContent", "SodiumContent",
+            "CarbohydrateContent", "FiberContent", "SugarContent",
+            "ProteinContent", "RecipeServings", "RecipeYield",
+            "ReviewCnt", "RatingSum", "IngredientCnt"};
+
+    private static final String[] REVIEWS = {
+            "ReviewId", "RecipeId", "AuthorId", "Rating", "Review", "DateSubmitted", "DateModified",
+            "LikeCnt"};
+
+    @Autowired
+    private ImportProgress importProgress;
+
+    @Override
+    public long loadUsers(Connection conn, List<UserRecord> users, ImportCounters counters) throws SQLException {
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "users", USERS)) {
+            for (UserRecord u : users) {
+                writer.startRow(10);
+                writer.writeLong(u.getAuthorId());
+                writer.writeText(u.getAuthorName());
+                writer.writeText(u.getGender());
+                writer.writeInt(u.getAge());
+                writer.writeInt(u.getFollowers());
+                writer.writeInt(u.getFollowing());
+                writer.writeText(u.getPassword());
+                writer.writeBoolean(u.isDeleted());
+                writer.writeInt(counters.followers(u.getAuthorId()));
+                writer.writeInt(counters.following(u.getAuthorId()));
+            }
+            return end(writer, ImportTable.USERS);
+        }
+    }
+
+    @Override
+    public long loadRecipes(Connection conn, List<RecipeRecord> recipes, ImportCounters counters) throws SQLException {
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "recipes", RECIPES)) {
+            for (RecipeRecord r : recipes) {
+                writer.startRow(25);
+                writer.writeLong(r.getRecipeId());
+                writer.writeText(r.getName());
+                writer.writeLong(r.getAuthorId());
+                writer.writeText(r.getCookTime());
+                writer.writeText(r.getPrepTime());
+                writer.writeText(r.getTotalTime());
+                writer.writeTimestamp(r.getDatePublished());
+                writer.writeText(r.getDescription());
+                writer.writeText(r.getRecipeCategory());
+                writer.writeNumeric(r.getAggregatedRating(), 2);
+                writer.writeInt(r.getReviewCount());
+                writer.writeNumeric(r.getCalories(), 2);
+                writer.writeNumeric(r.getFatContent(), 2);
+                writer.writeNumeric(r.getSaturatedFatContent(), 2);
+                writer.writeNumeric(r.getCholesterolContent(), 2);
+                writer.writeNumeric(r.getSodiumContent(), 2);
+                writer.writeNumeric(r.getCarbohydrateContent(), 2);
+                writer.writeNumeric(r.getFiberContent(), 2);
+                writer.writeNumeric(r.getSugarContent(), 2);
+                writer.writeNumeric(r.getProteinContent(), 2);
+                // RecipeServings is a varchar column filled from an int
+                writer.writeText(Integer.toString(r.getRecipeServings()));
+                writer.writeText(r.getRecipeYield());
+                writer.writeInt(counters.reviews(r.getRecipeId()));
+                writer.writeLong(counters.ratingSum(r.getRecipeId()));
+                writer.writeInt(counters.ingredients(r.getRecipeId()));
+            }
+            return end(writer, ImportTable.RECIPES);
+        }
+    }
+
+    @Override
+    public long loadReviews(Connection conn, List<ReviewRecord> reviews, ImportCounters counters) throws SQLException {
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "reviews", REVIEWS)) {
+            for (ReviewRecord r : reviews) {
+                writer.startRow(8);
+                writer.writeLong(r.getReviewId());
+                writer.writeLong(r.getRecipeId());
+                writer.writeLong(r.getAuthorId());
+                // the server rounds float4 to integer half-to-even, just like rint()
+                writer.writeInt((int) Math.rint(r.getRating()));
+                writer.writeText(r.getReview());
+                writer.writeTimestamp(r.getDateSubmitted());
+                writer.writeTimestamp(r.getDateModified());
+                writer.writeInt(counters.likes(r.getReviewId()));
+            }
+            return end(writer, ImportTable.REVIEWS);
+        }
+    }
+
+    @Override
+    public long loadRecipeIngredients(Connection conn, List<RecipeRecord> recipes) throws SQLException {
+        Set<String> seen = new HashSet<>();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "recipe_ingredients",
+                "RecipeId", "IngredientPart")) {
+            for (RecipeRecord r : recipes) {
+                String[] parts = r.getRecipeIngredientParts();
+                if (parts == null) {
+                    continue;
+                }
+                seen.clear();
+                for (String part : parts) {
+                    if (seen.add(part)) {
+                        writer.startRow(2);
+                        writer.writeLong(r.getRecipeId());
+                        writer.writeText(part);
+                    }
+                }
+            }
+            return end(writer, ImportTable.RECIPE_INGREDIENTS);
+        }
+    }
+
+    @Override
+    public long loadReviewLikes(Connection conn, List<ReviewRecord> reviews) throws SQLException {
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "review_likes",
+                "ReviewId", "AuthorId")) {
+            LongPairBuffer links = new LongPairBuffer(64);
+            for (ReviewRecord r : reviews) {
+                writeLinks(writer, links, r.getReviewId(), r.getLikes());
+            }
+            return end(writer, ImportTable.REVIEW_LIKES);
+        }
+    }
+
+    @Override
+    public long loadUserFollows(Connection conn, List<UserRecord> users) throws SQLException {
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "user_follows",
+                "FollowerId", "FollowingId")) {
+            LongPairBuffer links = new LongPairBuffer(64);
+            for (UserRecord u : users) {
+                writeLinks(writer, links, u.getAuthorId(), u.getFollowingUsers());
+            }
+            return end(writer, ImportTable.USER_FOLLOWS);
+        }
+    }
+
+    @Override
+    public long loadUsers(Connection conn, UserColumns users, ImportCounters counters) throws SQLException {
+        byte[][] genders = encode(users.getGender());
+        long[] ids = users.getAuthorId();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "users", USERS)) {
+            for (int i = 0; i < users.size(); i++) {
+                writer.startRow(10);
+                writer.writeLong(ids[i]);
+                writeText(writer, users.getAuthorName(), i);
+                writeText(writer, genders, users.getGender().code(i));
+                writer.writeInt(users.getAge()[i]);
+                writer.writeInt(users.getFollowers()[i]);
+                writer.writeInt(users.getFollowing()[i]);
+                writeText(writer, users.getPassword(), i);
+                writer.writeBoolean(users.getIsDeleted()[i]);
+                writer.writeInt(counters.followers(ids[i]));
+                writer.writeInt(counters.following(ids[i]));
+            }
+            return end(writer, ImportTable.USERS);
+        }
+    }
+
+    @Override
+    public long loadRecipes(Connection conn, RecipeColumns recipes, ImportCounters counters) throws SQLException {
+        byte[][] cookTimes = encode(recipes.getCookTime());
+        byte[][] prepTimes = encode(recipes.getPrepTime());
+        byte[][] totalTimes = encode(recipes.getTotalTime());
+        byte[][] categories = encode(recipes.getRecipeCategory());
+        long[] ids = recipes.getRecipeId();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "recipes", RECIPES)) {
+            for (int i = 0; i < recipes.size(); i++) {
+                writer.startRow(25);
+                writer.writeLong(ids[i]);
+                writeText(writer, recipes.getName(), i);
+                writer.writeLong(recipes.getAuthorId()[i]);
+                writeText(writer, cookTimes, recipes.getCookTime().code(i));
+                writeText(writer, prepTimes, recipes.getPrepTime().code(i));
+                writeText(writer, totalTimes, recipes.getTotalTime().code(i));
+                writeTimestamp(writer, recipes.getDatePublished(), i);
+                writeText(writer, recipes.getDescription(), i);
+                writeText(writer, categories, recipes.getRecipeCategory().code(i));
+                writer.writeNumeric(recipes.getAggregatedRating()[i], 2);
+                writer.writeInt(recipes.getReviewCount()[i]);
+                writer.writeNumeric(recipes.getCalories()[i], 2);
+                writer.writeNumeric(recipes.getFatContent()[i], 2);
+                writer.writeNumeric(recipes.getSaturatedFatContent()[i], 2);
+                writer.writeNumeric(recipes.getCholesterolContent()[i], 2);
+                writer.writeNumeric(recipes.getSodiumContent()[i], 2);
+                writer.writeNumeric(recipes.getCarbohydrateContent()[i], 2);
+                writer.writeNumeric(recipes.getFiberContent()[i], 2);
+                writer.writeNumeric(recipes.getSugarContent()[i], 2);
+                writer.writeNumeric(recipes.getProteinContent()[i], 2);
+                writer.writeText(Integer.toString(recipes.getRecipeServings()[i]));
+                writeText(writer, recipes.getRecipeYield(), i);
+                writer.writeInt(counters.reviews(ids[i]));
+                writer.writeLong(counters.ratingSum(ids[i]));
+                writer.writeInt(counters.ingredients(ids[i]));
+            }
+            return end(writer, ImportTable.RECIPES);
+        }
+    }
+
+    @Override
+    public long loadReviews(Connection conn, ReviewColumns reviews, ImportCounters counters) throws SQLException {
+        long[] ids = reviews.getReviewId();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "reviews", REVIEWS)) {
+            for (int i = 0; i < reviews.size(); i++) {
+                writer.startRow(8);
+                writer.writeLong(ids[i]);
+                writer.writeLong(reviews.getRecipeId()[i]);
+                writer.writeLong(reviews.getAuthorId()[i]);
+                writer.writeInt((int) Math.rint(reviews.getRating()[i]));
+                writeText(writer, reviews.getReview(), i);
+                writeTimestamp(writer, reviews.getDateSubmitted(), i);
+                writeTimestamp(writer, reviews.getDateModified(), i);
+                writer.writeInt(counters.likes(ids[i]));
+            }
+            return end(writer, ImportTable.REVIEWS);
+        }
+    }
+
+    @Override
+    public long loadRecipeIngredients(Connection conn, RecipeColumns recipes) throws SQLException {
+        TextColumn parts = recipes.getRecipeIngredientParts().getItems();
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "recipe_ingredients",
+                "RecipeId", "IngredientPart")) {
+            for (int i = 0; i < recipes.size(); i++) {
+                int start = recipes.getRecipeIngredientParts().start(i);
+                int end = recipes.getRecipeIngredientParts().end(i);
+                for (int part = start; part < end; part++) {
+                    // a recipe has a handful of parts, fewer than it takes a hash set to pay off
+                    if (!seenBefore(parts, start, part)) {
+                        writer.startRow(2);
+                        writer.writeLong(recipes.getRecipeId()[i]);
+                        writeText(writer, parts, part);
+                    }
+                }
+            }
+            return end(writer, ImportTable.RECIPE_INGREDIENTS);
+        }
+    }
+
+    @Override
+    public long loadReviewLikes(Connection conn, ReviewColumns reviews) throws SQLException {
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "review_likes",
+                "ReviewId", "AuthorId")) {
+            LongPairBuffer links = new LongPairBuffer(64);
+            for (int i = 0; i < reviews.size(); i++) {
+                writeLinks(writer, links, reviews.getReviewId()[i], reviews.getLikes(), i);
+            }
+            return end(writer, ImportTable.REVIEW_LIKES);
+        }
+    }
+
+    @Override
+    public long loadUserFollows(Connection conn, UserColumns users) throws SQLException {
+        try (PgBinaryCopyWriter writer = new PgBinaryCopyWriter(conn, "user_follows",
+                "FollowerId", "FollowingId")) {
+            LongPairBuffer links = new LongPairBuffer(64);
+            for (int i = 0; i < users.size(); i++) {
+                writeLinks(writer, links, users.getAuthorId()[i], users.getFollowingUsers(), i);
+            }
+            return end(writer, ImportTable.USER_FOLLOWS);
+        }
+    }
+
+    /**
+     * Ends the copy and reports the bytes it sent.
+     *
+     * @return the number of rows written
+     */
+    private long end(PgBinaryCopyWriter writer, ImportTable table) throws SQLException {
+        long rows = writer.endCopy();
+        importProgress.sent(table, writer.getBytes());
+        return rows;
+    }
+
+    /**
+     * Writes one {@code (owner, target)} row per distinct target, using {@code links} as scratch space.
+     */
+    private static void writeLinks(PgBinaryCopyWriter writer, LongPairBuffer links, long owner, long[] targets)
+            throws SQLException {
+        links.clear();
+        links.addDistinct(owner, targets);
+        writeLinks(writer, links);
+    }
+
+    /**
+     * Writes one {@code (owner, target)} row per distinct target in the list of row {@code i}.
+     */
+    private static void writeLinks(PgBinaryCopyWriter writer, LongPairBuffer links, long owner,
+                                   LongListColumn targets, int i) throws SQLException {
+        links.clear();
+        links.addDistinct(owner, targets.getValues(), targets.start(i), targets.end(i));
+        writeLinks(writer, links);
+    }
+
+    private static void writeLinks(PgBinaryCopyWriter writer, LongPairBuffer links) throws SQLException {
+        for (int i = 0; i < links.size(); i++) {
+            writer.startRow(2);
+            writer.writeLong(links.left(i));
+            writer.writeLong(links.right(i));
+        }
+    }
+
+    private static void writeText(PgBinaryCopyWriter writer, TextColumn column, int i) throws SQLException {
+        if (column.isNull(i)) {
+            writer.writeNull();
+        } else {
+            writer.writeText(column.getBytes(), column.offset(i), column.length(i));
+        }
+    }
+
+    /**
+     * Writes the dictionary value {@code code} of a column encoded by {@link #encode}.
+     */
+    private static void writeText(PgBinaryCopyWriter writer, byte[][] values, int code) throws SQLException {
+        if (code < 0) {
+            writer.writeNull();
+        } else {
+            writer.writeText(values[code], 0, values[code].length);
+        }
+    }
+
+    private static void writeTimestamp(PgBinaryCopyWriter writer, TimestampColumn column, int i)
+            throws SQLException {
+        if (column.isNull(i)) {
+            writer.writeNull();
+        } else {
+            writer.writeTimestamp(column.micros(i));
+        }
+    }
+
+    /**
+     * @return the UTF-8 bytes of every dictionary value, encoded once per block
+     */
+    private static byte[][] encode(DictionaryColumn column) {
+        String[] values = column.getValues();
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    /**
+     * Whether item {@code part} of {@code parts} equals one of the items in {@code [start, part)}.
+     */
+    private static boolean seenBefore(TextColumn parts, int start, int part) {
+        for (int j = start; j < part; j++) {
+            if (parts.equals(j, part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+package io.sustc.service.impl.importer;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs of the data import, bound from the {@code sustc.import} section of {@code application.yml}.
+ * Every property has a default, so the import works without any configuration.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sustc.import")
+@Data
+public class ImportConfig {
+
+    /**
+     * The way rows are written to the database.
+     */
+    private ImportMode mode = ImportMode.COPY;
+
+    /**
+     * Number of rows sent per JDBC batch in {@link ImportMode#BATCH} mode.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Number of connections loading tables at the same time.
+     * With {@code 1} and {@link #resume} off the whole import runs in a single transaction on one connection.
+     * Above {@code 1} every shard commits on its own, so a failed import leaves partly loaded tables unless
+     * {@link #staging} is on.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Tables derived from more records than this are split into key-range shards loaded in parallel.
+     */
+    private int shardSize = 100_000;
+
+    /**
+     * Records per chunk read from the streams given to the streaming {@code importData}.
+     */
+    private int chunkSize = 10_000;
+
+    /**
+     * Chunks the streaming {@code importData} reads ahead on a separate thread while earlier chunks load,
+     * {@code 0} to read each chunk on the loading thread when it is needed.
+     */
+    private int pipelineDepth = 2;
+
+    /**
+     * Whether to create the tables bare and add primary keys, checks and foreign keys after the load.
+     */
+    private boolean deferConstraints = true;
+
+    /**
+     * Whether to load into {@code UNLOGGED} tables of a separate schema and swap them in once the load and
+     * the constraints succeed. A failed import then leaves the previous tables as they were.
+     */
+    private boolean staging = false;
+
+    /**
+     * Whether to checkpoint every committed shard, chunk and finishing step in an {@code import_state} table,
+     * so an import that failed or was cut off continues where it stopped when run again with the same data
+     * and settings. Checkpointed imports always commit in shards of at most {@link #shardSize} records, even
+     * with a {@link #parallelism} of {@code 1}. Checkpoints of an import into the live schema are lost when
+     * its tables are dropped; staged imports keep theirs in the staging schema.
+     */
+    private boolean resume = false;
+
+    /**
+     * How often the progress of a running import is logged, {@code 0} to log none.
+     */
+    private Duration progressInterval = Duration.ofSeconds(10);
+
+    /**
+     * Whether to sort the records of each table before loading, so rows read by the same range scan end up on
+     * neighbouring pages: recipes by author and publication date, reviews by recipe and modification date,
+     * the other tables by their leading key. Streamed imports load each chunk as it comes.
+     */
+    private boolean sortRecords = true;
+
+    /**
+     * Whether to {@code CLUSTER} every table after the load, in the order {@link #sortRecords} loads it in.
+     * This rewrites the tables, which presorted imports seldom need; it pays off for streamed imports.
+     */
+    private boolean cluster = false;
+
+    /**
+     * Fillfactor of the tables whose rows are updated after the import (users, recipes and reviews).
+     * Below {@code 100} the load leaves free space in every page, so counter updates can stay on the page.
+     */
+    private int fillfactor = 100;
+}
@@ -0,0 +1,104 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The denormalized counter columns of an import, counted in one pass over the records:
+ * users.FollowerCnt and FollowingCnt, reviews.LikeCnt, and recipes.ReviewCnt, RatingSum and IngredientCnt.
+ * Links repeated within one record count once, as they are stored once.
+ * <p>
+ * Counts of a record may depend on other records (a user's followers on every user), so they are only
+ * known for a complete data set. Streamed imports load {@link #EMPTY} counters and recount the columns
+ * from the loaded tables with {@link ImportSchema#counters()}.
+ */
+public final class ImportCounters {
+
+    public static final ImportCounters EMPTY = count(
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+    private final LongIntHashMap followers;
+
+    private final LongIntHashMap following;
+
+    private final LongIntHashMap likes;
+
+    private final LongIntHashMap reviews;
+
+    private final LongIntHashMap ratingSums;
+
+    private final LongIntHashMap ingredients;
+
+    private ImportCounters(int users, int recipes, int reviews) {
+        this.followers = new LongIntHashMap(users);
+        this.following = new LongIntHashMap(users);
+        this.likes = new LongIntHashMap(reviews);
+        this.reviews = new LongIntHashMap(recipes);
+        this.ratingSums = new LongIntHashMap(recipes);
+        this.ingredients = new LongIntHashMap(recipes);
+    }
+
+    public static ImportCounters count(
+            List<ReviewRecord> reviewRecords, List<UserRecord> userRecords, List<RecipeRecord> recipeRecords) {
+        ImportCounters counters = new ImportCounters(userRecords.size(), recipeRecords.size(), reviewRecords.size());
+
+        LongPairBuffer links = new LongPairBuffer(64);
+        for (UserRecord u : userRecords) {
+            links.clear();
+            links.addDistinct(u.getAuthorId(), u.getFollowingUsers());
+            counters.following.add(u.getAuthorId(), links.size());
+            for (int i = 0; i < links.size(); i++) {
+                counters.followers.add(links.right(i), 1);
+            }
+        }
+
+        for (ReviewRecord r : reviewRecords) {
+            links.clear();
+            links.addDistinct(r.getReviewId(), r.getLikes());
+            counters.likes.add(r.getReviewId(), links.size());
+            counters.reviews.add(r.getRecipeId(), 1);
+            // stored as INTEGER, which rounds half to even like Math.rint
+            counters.ratingSums.add(r.getRecipeId(), (int) Math.rint(r.getRating()));
+        }
+
+        Set<String> parts = new HashSet<>();
+        for (RecipeRecord r : recipeRecords) {
+            parts.clear();
+            if (r.getRecipeIngredientParts() != null) {
+                Collections.addAll(parts, r.getRecipeIngredientParts());
+            }
+            counters.ingredients.add(r.getRecipeId(), parts.size());
+        }
+        return counters;
+    }
+
+    public int followers(long authorId) {
+        return followers.get(authorId);
+    }
+
+    public int following(long authorId) {
+        return following.get(authorId);
+    }
+
+    public int likes(long reviewId) {
+        return likes.get(reviewId);
+    }
+
+    public int reviews(long recipeId) {
+        return reviews.get(recipeId);
+    }
+
+    public long ratingSum(long recipeId) {
+        return ratingSums.get(recipeId);
+    }
+
+    public int ingredients(long recipeId) {
+        return ingredients.get(recipeId);
+    }
+}
@@ -0,0 +1,370 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.UserColumns;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The records handed to {@link io.sustc.service.DatabaseService#importData}, or a key-range shard or a streamed
+ * chunk of them. A chunk streamed by {@link io.sustc.service.DatabaseService#importColumns} holds one block of
+ * columns instead of a record list.
+ * <p>
+ * Every table is derived from one record list: users and user_follows from users,
+ * recipes and recipe_ingredients from recipes, reviews and review_likes from reviews.
+ * Sharding a table therefore splits that list by the table's leading key.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ImportData {
+
+    private static final Comparator<UserRecord> USERS_BY_KEY = Comparator.comparingLong(UserRecord::getAuthorId);
+
+    private static final Comparator<RecipeRecord> RECIPES_BY_KEY = Comparator.comparingLong(RecipeRecord::getRecipeId);
+
+    private static final Comparator<ReviewRecord> REVIEWS_BY_KEY = Comparator.comparingLong(ReviewRecord::getReviewId);
+
+    /**
+     * The order of the feed: an author's recipes by publication date.
+     */
+    private static final Comparator<RecipeRecord> RECIPES_BY_AUTHOR = Comparator
+            .comparingLong(RecipeRecord::getAuthorId)
+            .thenComparing(RecipeRecord::getDatePublished, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(RECIPES_BY_KEY);
+
+    /**
+     * The order of {@code listByRecipe}: a recipe's reviews by modification date.
+     */
+    private static final Comparator<ReviewRecord> REVIEWS_BY_RECIPE = Comparator
+            .comparingLong(ReviewRecord::getRecipeId)
+            .thenComparing(ReviewRecord::getDateModified, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(REVIEWS_BY_KEY);
+
+    private final List<ReviewRecord> reviews;
+
+    private final List<UserRecord> users;
+
+    private final List<RecipeRecord> recipes;
+
+    /**
+     * Counters of the whole data set, shared by its shards; {@link ImportCounters#EMPTY} if {@link #uncounted}.
+     */
+    private final ImportCounters counters;
+
+    private final ReviewColumns reviewColumns;
+
+    private final UserColumns userColumns;
+
+    private final RecipeColumns recipeColumns;
+
+    private ImportData(List<ReviewRecord> reviews, List<UserRecord> users, List<RecipeRecord> recipes,
+                       ImportCounters counters) {
+        this(reviews, users, recipes, counters, null, null, null);
+    }
+
+    /**
+     * Wraps a whole data set, without the records and links {@link ImportFilter} drops, and counts it.
+     */
+    public static ImportData of(List<ReviewRecord> reviews, List<UserRecord> users, List<RecipeRecord> recipes) {
+        ImportFilter filter = new ImportFilter(true, users.size(), recipes.size(), reviews.size());
+        List<UserRecord> keptUsers = filter.follows(filter.users(users));
+        List<RecipeRecord> keptRecipes = filter.recipes(recipes);
+        List<ReviewRecord> keptReviews = filter.reviews(reviews);
+        filter.report();
+        return new ImportData(keptReviews, keptUsers, keptRecipes,
+                ImportCounters.count(keptReviews, keptUsers, keptRecipes));
+    }
+
+    /**
+     * Wraps records whose counter columns are recounted in the database after loading, like streamed chunks and
+     * delta imports, where the records do not make up the whole data set.
+     */
+    public static ImportData uncounted(List<ReviewRecord> reviews, List<UserRecord> users, List<RecipeRecord> recipes) {
+        return new ImportData(reviews, users, recipes, ImportCounters.EMPTY);
+    }
+
+    /**
+     * Wraps the records of a delta import, uncounted and without repeated keys. References are not checked,
+     * they may point to rows already in the database.
+     */
+    public static ImportData delta(List<ReviewRecord> reviews, List<UserRecord> users, List<RecipeRecord> recipes) {
+        ImportFilter filter = new ImportFilter(false, users.size(), recipes.size(), reviews.size());
+        ImportData delta = uncounted(filter.reviews(reviews), filter.users(users), filter.recipes(recipes));
+        filter.report();
+        return delta;
+    }
+
+    /**
+     * @return the number of records the given table is derived from
+     */
+    public int records(ImportTable table) {
+        return switch (table) {
+            case USERS, USER_FOLLOWS -> users.size() + (userColumns == null ? 0 : userColumns.size());
+            case RECIPES, RECIPE_INGREDIENTS -> recipes.size() + (recipeColumns == null ? 0 : recipeColumns.size());
+            case REVIEWS, REVIEW_LIKES -> reviews.size() + (reviewColumns == null ? 0 : reviewColumns.size());
+        };
+    }
+
+    /**
+     * @return the largest leading key among the records of {@code table}, 0 if there are none
+     */
+    public long lastKey(ImportTable table) {
+        long max = 0;
+        switch (table) {
+            case USERS, USER_FOLLOWS -> {
+                for (UserRecord u : users) {
+                    max = Math.max(max, u.getAuthorId());
+                }
+                max = Math.max(max, userColumns == null ? 0 : max(userColumns.getAuthorId()));
+            }
+            case RECIPES, RECIPE_INGREDIENTS -> {
+                for (RecipeRecord r : recipes) {
+                    max = Math.max(max, r.getRecipeId());
+                }
+                max = Math.max(max, recipeColumns == null ? 0 : max(recipeColumns.getRecipeId()));
+            }
+            case REVIEWS, REVIEW_LIKES -> {
+                for (ReviewRecord r : reviews) {
+                    max = Math.max(max, r.getReviewId());
+                }
+                max = Math.max(max, reviewColumns == null ? 0 : max(reviewColumns.getReviewId()));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return a hash of the keys of every record in order, telling whether two imports, or two chunks, are of
+     *         the same data
+     */
+    public long fingerprint() {
+        long hash = 1;
+        for (UserRecord u : users) {
+            hash = 31 * hash + u.getAuthorId();
+        }
+        hash = fingerprint(31 * hash + users.size(), userColumns == null ? null : userColumns.getAuthorId());
+        for (RecipeRecord r : recipes) {
+            hash = 31 * hash + r.getRecipeId();
+        }
+        hash = fingerprint(31 * hash + recipes.size(), recipeColumns == null ? null : recipeColumns.getRecipeId());
+        for (ReviewRecord r : reviews) {
+            hash = 31 * hash + r.getReviewId();
+        }
+        return fingerprint(31 * hash + reviews.size(), reviewColumns == null ? null : reviewColumns.getReviewId());
+    }
+
+    /**
+     * Splits the records of {@code table} into at most {@code count} non-empty shards of disjoint key ranges.
+     * Only the list the table is derived from is filled in the returned shards.
+     */
+    public List<ImportData> shard(ImportTable table, int count) {
+        if (count <= 1) {
+            return Collections.singletonList(this);
+        }
+        List<ImportData> shards = new ArrayList<>(count);
+        switch (table) {
+            case USERS, USER_FOLLOWS -> {
+                for (List<UserRecord> part : byKeyRange(users, UserRecord::getAuthorId, count)) {
+                    shards.add(new ImportData(Collections.emptyList(), part, Collections.emptyList(), counters));
+                }
+            }
+            case RECIPES, RECIPE_INGREDIENTS -> {
+                for (List<RecipeRecord> part : byKeyRange(recipes, RecipeRecord::getRecipeId, count)) {
+                    shards.add(new ImportData(Collections.emptyList(), Collections.emptyList(), part, counters));
+                }
+            }
+            case REVIEWS, REVIEW_LIKES -> {
+                for (List<ReviewRecord> part : byKeyRange(reviews, ReviewRecord::getReviewId, count)) {
+                    shards.add(new ImportData(part, Collections.emptyList(), Collections.emptyList(), counters));
+                }
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Sorts the records of {@code table} into the order its range scans read rows in, and cuts them into at most
+     * {@code count} consecutive slices of similar size. Recipes are sorted by author and publication date,
+     * reviews by recipe and modification date, and the other tables by their leading key; link rows of one
+     * record are already written in target order. Only the list the table is derived from is filled in the
+     * returned slices.
+     */
+    public List<ImportData> sorted(ImportTable table, int count) {
+        return switch (table) {
+            case USERS, USER_FOLLOWS -> slices(users, USERS_BY_KEY, count,
+                    part -> new ImportData(Collections.emptyList(), part, Collections.emptyList(), counters));
+            case RECIPES -> slices(recipes, RECIPES_BY_AUTHOR, count,
+                    part -> new ImportData(Collections.emptyList(), Collections.emptyList(), part, counters));
+            case RECIPE_INGREDIENTS -> slices(recipes, RECIPES_BY_KEY, count,
+                    part -> new ImportData(Collections.emptyList(), Collections.emptyList(), part, counters));
+            case REVIEWS -> slices(reviews, REVIEWS_BY_RECIPE, count,
+                    part -> new ImportData(part, Collections.emptyList(), Collections.emptyList(), counters));
+            case REVIEW_LIKES -> slices(reviews, REVIEWS_BY_KEY, count,
+                    part -> new ImportData(part, Collections.emptyList(), Collections.emptyList(), counters));
+        };
+    }
+
+    /**
+     * Cuts the record streams into chunks of at most {@code chunkSize} records, users first, then recipes,
+     * then reviews. Records are pulled from the streams only as the chunks are consumed, and closing
+     * the returned stream closes the three record streams.
+     * <p>
+     * The chunks go through one {@link ImportFilter}, except for the check of followings: a user may follow
+     * users of later chunks, so a following of an unknown user still fails the foreign key.
+     */
+    public static Stream<ImportData> chunks(
+            Stream<ReviewRecord> reviews, Stream<UserRecord> users, Stream<RecipeRecord> recipes, int chunkSize) {
+        ImportFilter filter = new ImportFilter(true, chunkSize, chunkSize, chunkSize);
+        List<Iterator<ImportData>> sources = List.of(
+                chunked(users.iterator(), chunkSize,
+                        part -> uncounted(Collections.emptyList(), filter.users(part), Collections.emptyList())),
+                chunked(recipes.iterator(), chunkSize,
+                        part -> uncounted(Collections.emptyList(), Collections.emptyList(), filter.recipes(part))),
+                chunked(reviews.iterator(), chunkSize,
+                        part -> uncounted(filter.reviews(part), Collections.emptyList(), Collections.emptyList())));
+        return concat(sources)
+                .onClose(filter::report)
+                .onClose(users::close)
+                .onClose(recipes::close)
+                .onClose(reviews::close);
+    }
+
+    /**
+     * Wraps every block of columns into a chunk of its own, users first, then recipes, then reviews, like
+     * {@link #chunks}, and filtered the same way. The counter columns are recounted in the database after loading.
+     */
+    public static Stream<ImportData> columnChunks(
+            Stream<ReviewColumns> reviews, Stream<UserColumns> users, Stream<RecipeColumns> recipes) {
+        ImportFilter filter = new ImportFilter(true, 0, 0, 0);
+        List<Iterator<ImportData>> sources = List.of(
+                users.map(block -> new ImportData(Collections.emptyList(), Collections.emptyList(),
+                        Collections.emptyList(), ImportCounters.EMPTY, null, filter.users(block), null)).iterator(),
+                recipes.map(block -> new ImportData(Collections.emptyList(), Collections.emptyList(),
+                        Collections.emptyList(), ImportCounters.EMPTY, null, null, filter.recipes(block))).iterator(),
+                reviews.map(block -> new ImportData(Collections.emptyList(), Collections.emptyList(),
+                        Collections.emptyList(), ImportCounters.EMPTY, filter.reviews(block), null, null)).iterator());
+        return concat(sources)
+                .onClose(filter::report)
+                .onClose(users::close)
+                .onClose(recipes::close)
+                .onClose(reviews::close);
+    }
+
+    private static Stream<ImportData> concat(List<Iterator<ImportData>> sources) {
+        // concatenated by hand: Stream.flatMap buffers a whole inner stream when read through an iterator
+        Iterator<ImportData> chunks = new Iterator<>() {
+            private int source;
+
+            @Override
+            public boolean hasNext() {
+                while (source < sources.size() && !sources.get(source).hasNext()) {
+                    source++;
+                }
+                return source < sources.size();
+            }
+
+            @Override
+            public ImportData next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return sources.get(source).next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false);
+    }
+
+    private static <T> Iterator<ImportData> chunked(Iterator<T> records, int chunkSize, Function<List<T>, ImportData> wrap) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public ImportData next() {
+                List<T> part = new ArrayList<>(chunkSize);
+                while (part.size() < chunkSize && records.hasNext()) {
+                    part.add(records.next());
+                }
+                if (part.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                return wrap.apply(part);
+            }
+        };
+    }
+
+    private static <T> List<ImportData> slices(
+            List<T> records, Comparator<T> order, int count, Function<List<T>, ImportData> wrap) {
+        List<T> sorted = new ArrayList<>(records);
+        sorted.sort(order);
+        int parts = Math.max(1, Math.min(count, sorted.size()));
+        List<ImportData> slices = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            slices.add(wrap.apply(sorted.subList(sorted.size() * i / parts, sorted.size() * (i + 1) / parts)));
+        }
+        return slices;
+    }
+
+    /**
+     * Folds the keys of a block of columns into {@code hash}, leaving it as it is without a block.
+     */
+    private static long fingerprint(long hash, long[] keys) {
+        if (keys == null) {
+            return hash;
+        }
+        for (long key : keys) {
+            hash = 31 * hash + key;
+        }
+        return 31 * hash + keys.length;
+    }
+
+    private static long max(long[] keys) {
+        long max = 0;
+        for (long key : keys) {
+            max = Math.max(max, key);
+        }
+        return max;
+    }
+
+    private static <T> List<List<T>> byKeyRange(List<T> records, ToLongFunction<T> key, int count) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (T record : records) {
+            long k = key.applyAsLong(record);
+            min = Math.min(min, k);
+            max = Math.max(max, k);
+        }
+
+        List<List<T>> buckets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buckets.add(new ArrayList<>(records.size() / count + 1));
+        }
+        double width = ((double) max - min + 1) / count;
+        for (T record : records) {
+            int bucket = (int) ((key.applyAsLong(record) - (double) min) / width);
+            buckets.get(Math.min(bucket, count - 1)).add(record);
+        }
+        buckets.removeIf(List::isEmpty);
+        return buckets;
+    }
+}
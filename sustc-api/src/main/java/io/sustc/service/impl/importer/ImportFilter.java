@@ -0,0 +1,280 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import io.sustc.dto.column.LongListColumn;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.UserColumns;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops the records and links the import tables would reject before any of them is written, so the loaders
+ * need no {@code ON CONFLICT} handling and bare tables get their keys without a failed build:
+ * <ul>
+ *     <li>users, recipes and reviews whose key was already read, keeping the first;</li>
+ *     <li>recipes by unknown authors, and reviews of unknown recipes or by unknown authors;</li>
+ *     <li>likes by unknown users, followings of unknown users, and users following themselves.</li>
+ * </ul>
+ * Keys are kept in primitive hash sets and carried across calls, so one filter can check a whole import chunk
+ * by chunk as long as users come before recipes and recipes before reviews. Followings can only be checked
+ * once every user is known, see {@link #follows}. A filter that does not check references, for a delta whose
+ * parents may already be in the database, only drops repeated keys and self-followings.
+ * <p>
+ * Links repeated within one record are left to the loaders, which write every distinct link once.
+ */
+@Slf4j
+final class ImportFilter {
+
+    /**
+     * Owner passed for likes, which may come from the author of the review.
+     */
+    private static final long NO_OWNER = Long.MIN_VALUE;
+
+    private final boolean references;
+
+    private final LongHashSet users;
+
+    private final LongHashSet recipes;
+
+    private final LongHashSet reviews;
+
+    private long duplicates;
+
+    private long dangling;
+
+    private long links;
+
+    ImportFilter(boolean references, int users, int recipes, int reviews) {
+        this.references = references;
+        this.users = new LongHashSet(users);
+        this.recipes = new LongHashSet(recipes);
+        this.reviews = new LongHashSet(reviews);
+    }
+
+    List<UserRecord> users(List<UserRecord> records) {
+        List<UserRecord> kept = new ArrayList<>(records.size());
+        for (UserRecord u : records) {
+            if (!users.add(u.getAuthorId())) {
+                duplicates++;
+                continue;
+            }
+            kept.add(withFollowing(u, false));
+        }
+        return kept;
+    }
+
+    /**
+     * Drops the followings of unknown users, once {@link #users} has seen every user of the import.
+     */
+    List<UserRecord> follows(List<UserRecord> records) {
+        if (!references) {
+            return records;
+        }
+        List<UserRecord> kept = new ArrayList<>(records.size());
+        for (UserRecord u : records) {
+            kept.add(withFollowing(u, true));
+        }
+        return kept;
+    }
+
+    List<RecipeRecord> recipes(List<RecipeRecord> records) {
+        List<RecipeRecord> kept = new ArrayList<>(records.size());
+        for (RecipeRecord r : records) {
+            if (keepRecipe(r.getRecipeId(), r.getAuthorId())) {
+                kept.add(r);
+            }
+        }
+        return kept;
+    }
+
+    List<ReviewRecord> reviews(List<ReviewRecord> records) {
+        List<ReviewRecord> kept = new ArrayList<>(records.size());
+        for (ReviewRecord r : records) {
+            if (!keepReview(r.getReviewId(), r.getRecipeId(), r.getAuthorId())) {
+                continue;
+            }
+            long[] likes = r.getLikes();
+            int count = count(likes, NO_OWNER, true);
+            links += length(likes) - count;
+            kept.add(count == length(likes) ? r : r.toBuilder().likes(keep(likes, count, NO_OWNER, true)).build());
+        }
+        return kept;
+    }
+
+    /**
+     * Like {@link #users(List)} for a block of columns. The block is only rebuilt if a row or link is dropped.
+     */
+    UserColumns users(UserColumns block) {
+        boolean[] dropped = new boolean[block.size()];
+        boolean clean = true;
+        for (int i = 0; i < block.size(); i++) {
+            long id = block.getAuthorId()[i];
+            dropped[i] = !users.add(id);
+            if (dropped[i]) {
+                duplicates++;
+            }
+            clean &= !dropped[i] && cleanLinks(block.getFollowingUsers(), i, id, false);
+        }
+        if (clean) {
+            return block;
+        }
+        List<UserRecord> records = new ArrayList<>(block.size());
+        for (int i = 0; i < block.size(); i++) {
+            if (!dropped[i]) {
+                UserRecord u = block.get(i);
+                u.setFollowingUsers(keep(u.getFollowingUsers(), u.getAuthorId(), false));
+                records.add(u);
+            }
+        }
+        return UserColumns.of(records);
+    }
+
+    /**
+     * Like {@link #recipes(List)} for a block of columns. The block is only rebuilt if a row is dropped.
+     */
+    RecipeColumns recipes(RecipeColumns block) {
+        boolean[] dropped = new boolean[block.size()];
+        boolean clean = true;
+        for (int i = 0; i < block.size(); i++) {
+            dropped[i] = !keepRecipe(block.getRecipeId()[i], block.getAuthorId()[i]);
+            clean &= !dropped[i];
+        }
+        if (clean) {
+            return block;
+        }
+        List<RecipeRecord> records = new ArrayList<>(block.size());
+        for (int i = 0; i < block.size(); i++) {
+            if (!dropped[i]) {
+                records.add(block.get(i));
+            }
+        }
+        return RecipeColumns.of(records);
+    }
+
+    /**
+     * Like {@link #reviews(List)} for a block of columns. The block is only rebuilt if a row or link is dropped.
+     */
+    ReviewColumns reviews(ReviewColumns block) {
+        boolean[] dropped = new boolean[block.size()];
+        boolean clean = true;
+        for (int i = 0; i < block.size(); i++) {
+            dropped[i] = !keepReview(block.getReviewId()[i], block.getRecipeId()[i], block.getAuthorId()[i]);
+            clean &= !dropped[i] && cleanLinks(block.getLikes(), i, NO_OWNER, true);
+        }
+        if (clean) {
+            return block;
+        }
+        List<ReviewRecord> records = new ArrayList<>(block.size());
+        for (int i = 0; i < block.size(); i++) {
+            if (!dropped[i]) {
+                ReviewRecord r = block.get(i);
+                r.setLikes(keep(r.getLikes(), NO_OWNER, true));
+                records.add(r);
+            }
+        }
+        return ReviewColumns.of(records);
+    }
+
+    /**
+     * Logs how many records and links were dropped, if any.
+     */
+    void report() {
+        if (duplicates > 0 || dangling > 0 || links > 0) {
+            log.info("Import filter dropped {} records with repeated keys, {} with unknown references, {} links",
+                    duplicates, dangling, links);
+        }
+    }
+
+    private boolean keepRecipe(long recipeId, long authorId) {
+        if (references && !users.contains(authorId)) {
+            dangling++;
+            return false;
+        }
+        if (!recipes.add(recipeId)) {
+            duplicates++;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean keepReview(long reviewId, long recipeId, long authorId) {
+        if (references && (!recipes.contains(recipeId) || !users.contains(authorId))) {
+            dangling++;
+            return false;
+        }
+        if (!reviews.add(reviewId)) {
+            duplicates++;
+            return false;
+        }
+        return true;
+    }
+
+    private UserRecord withFollowing(UserRecord u, boolean known) {
+        long[] following = u.getFollowingUsers();
+        int count = count(following, u.getAuthorId(), known);
+        links += length(following) - count;
+        return count == length(following) ? u
+                : u.toBuilder().followingUsers(keep(following, count, u.getAuthorId(), known)).build();
+    }
+
+    /**
+     * @return whether every link of row {@code i} is kept; counts the dropped ones otherwise
+     */
+    private boolean cleanLinks(LongListColumn targets, int i, long owner, boolean known) {
+        int dropped = 0;
+        for (int j = targets.start(i); j < targets.end(i); j++) {
+            if (!keepLink(targets.getValues()[j], owner, known)) {
+                dropped++;
+            }
+        }
+        links += dropped;
+        return dropped == 0;
+    }
+
+    /**
+     * @return how many of {@code targets} are kept
+     */
+    private int count(long[] targets, long owner, boolean known) {
+        if (targets == null) {
+            return 0;
+        }
+        int count = 0;
+        for (long target : targets) {
+            if (keepLink(target, owner, known)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long[] keep(long[] targets, long owner, boolean known) {
+        return keep(targets, count(targets, owner, known), owner, known);
+    }
+
+    private long[] keep(long[] targets, int count, long owner, boolean known) {
+        long[] kept = new long[count];
+        int n = 0;
+        for (long target : targets) {
+            if (keepLink(target, owner, known)) {
+                kept[n++] = target;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @param known whether the target has to be a known user, only checked if this filter checks references
+     */
+    private boolean keepLink(long target, long owner, boolean known) {
+        return target != owner && (!known || !references || users.contains(target));
+    }
+
+    private static int length(long[] targets) {
+        return targets == null ? 0 : targets.length;
+    }
+}
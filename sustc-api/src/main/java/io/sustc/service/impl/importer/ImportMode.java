@@ -0,0 +1,17 @@
+package io.sustc.service.impl.importer;
+
+/**
+ * How {@link io.sustc.service.DatabaseService#importData} pushes rows to the database.
+ */
+public enum ImportMode {
+
+    /**
+     * {@code INSERT} statements sent through JDBC batches.
+     */
+    BATCH,
+
+    /**
+     * {@code COPY ... FROM STDIN (FORMAT binary)} streams driven by the pgjdbc {@code CopyManager}.
+     */
+    COPY
+}
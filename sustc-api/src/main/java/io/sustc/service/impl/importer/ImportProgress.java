@@ -0,0 +1,156 @@
+package io.sustc.service.impl.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live progress of the running import, logged every {@link ImportConfig#getProgressInterval()}: records and
+ * rows loaded, rows per second, bytes sent and, when the record count is known up front, the share done and
+ * the estimated time left of the load.
+ * <p>
+ * {@link ImportScheduler} counts records and rows as units of work finish, and {@link CopyTableLoader} counts
+ * the bytes of its {@code COPY} streams; batched inserts report no bytes. A table's records are those it is
+ * derived from, see {@link ImportData#records}. Records of units skipped by a resumed import count as done
+ * but not towards the rate.
+ */
+@Component
+@Slf4j
+public class ImportProgress {
+
+    private static final ImportTable[] TABLES = ImportTable.values();
+
+    @Autowired
+    private ImportConfig importConfig;
+
+    private final AtomicLongArray records = new AtomicLongArray(TABLES.length);
+
+    private final AtomicLongArray rows = new AtomicLongArray(TABLES.length);
+
+    private final AtomicLongArray bytes = new AtomicLongArray(TABLES.length);
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Expected records per table, -1 if unknown.
+     */
+    private final long[] totals = new long[TABLES.length];
+
+    private final long[] reported = new long[TABLES.length];
+
+    private long startNanos;
+
+    private ScheduledExecutorService timer;
+
+    /**
+     * Resets the counters and starts logging.
+     *
+     * @param expected the records of each table, empty if the count is not known in advance
+     */
+    public synchronized void start(Map<ImportTable, Integer> expected) {
+        stop();
+        for (ImportTable table : TABLES) {
+            int i = table.ordinal();
+            records.set(i, 0);
+            rows.set(i, 0);
+            bytes.set(i, 0);
+            totals[i] = expected.containsKey(table) ? expected.get(table) : -1;
+            reported[i] = 0;
+        }
+        skipped.set(0);
+        startNanos = System.nanoTime();
+
+        Duration interval = importConfig.getProgressInterval();
+        if (interval != null && !interval.isZero() && !interval.isNegative()) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "import-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleAtFixedRate(this::log, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops logging, with a last line if progress was being logged.
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+            log();
+        }
+    }
+
+    public void loaded(ImportTable table, long records, long rows) {
+        this.records.addAndGet(table.ordinal(), records);
+        this.rows.addAndGet(table.ordinal(), rows);
+    }
+
+    public void skipped(ImportTable table, long records) {
+        this.records.addAndGet(table.ordinal(), records);
+        skipped.addAndGet(records);
+    }
+
+    public void sent(ImportTable table, long bytes) {
+        this.bytes.addAndGet(table.ordinal(), bytes);
+    }
+
+    /**
+     * @return the bytes {@code table} was sent since the import started
+     */
+    public long getBytes(ImportTable table) {
+        return bytes.get(table.ordinal());
+    }
+
+    private synchronized void log() {
+        long done = 0;
+        long total = 0;
+        long rowCount = 0;
+        long byteCount = 0;
+        boolean known = true;
+        for (int i = 0; i < TABLES.length; i++) {
+            done += records.get(i);
+            rowCount += rows.get(i);
+            byteCount += bytes.get(i);
+            if (totals[i] < 0) {
+                known = false;
+            }
+            total += totals[i];
+        }
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        long rowsPerSecond = (long) (rowCount / seconds);
+
+        if (known && total > 0) {
+            double recordsPerSecond = (done - skipped.get()) / seconds;
+            String eta = recordsPerSecond > 0 ? Math.round((total - done) / recordsPerSecond) + " s" : "unknown";
+            log.info("Import progress: {}% of {} records, {} rows at {} rows/s, {} sent, ETA {}",
+                    done * 100 / total, total, rowCount, rowsPerSecond, megabytes(byteCount), eta);
+        } else {
+            log.info("Import progress: {} records, {} rows at {} rows/s, {} sent",
+                    done, rowCount, rowsPerSecond, megabytes(byteCount));
+        }
+
+        for (ImportTable table : TABLES) {
+            int i = table.ordinal();
+            long tableRecords = records.get(i);
+            if (tableRecords != reported[i]) {
+                reported[i] = tableRecords;
+                log.info("  {}: {} of {} records, {} rows, {} sent", table.getTableName(), tableRecords,
+                        totals[i] < 0 ? "?" : totals[i], rows.get(i), megabytes(bytes.get(i)));
+            }
+        }
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
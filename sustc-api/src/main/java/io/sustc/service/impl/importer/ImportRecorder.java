@@ -0,0 +1,79 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.ImportReport;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the phases of one import run into an {@link ImportReport}. The rows of a table are those its load
+ * wrote, and bytes come from {@link ImportProgress}, so only {@code COPY} loads report them.
+ * <p>
+ * Phases are recorded by the thread driving the run, once the work of all tables in them is done.
+ */
+final class ImportRecorder {
+
+    private final long startMillis = System.currentTimeMillis();
+
+    private final List<ImportReport.Phase> phases = new ArrayList<>();
+
+    private final Map<ImportTable, Long> rows = new EnumMap<>(ImportTable.class);
+
+    /**
+     * Records a phase not tied to any table, which started at {@code start}.
+     */
+    void step(String name, long start) {
+        took(name, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Records a phase not tied to any table, which took {@code millis}.
+     */
+    void took(String name, long millis) {
+        phases.add(new ImportReport.Phase(name, null, 0, 0, millis));
+    }
+
+    /**
+     * Records the load, which started at {@code start}, and the rows, bytes and time of each of its tables.
+     */
+    void load(List<TableStats> stats, long start, ImportProgress progress) {
+        long elapsed = System.currentTimeMillis() - start;
+        List<ImportReport.Phase> tables = new ArrayList<>();
+        long totalRows = 0;
+        long totalBytes = 0;
+        for (TableStats s : stats) {
+            long bytes = progress.getBytes(s.getTable());
+            rows.put(s.getTable(), s.getRows());
+            totalRows += s.getRows();
+            totalBytes += bytes;
+            tables.add(new ImportReport.Phase("load", s.getTable().getTableName(), s.getRows(), bytes,
+                    s.getElapsedMillis()));
+        }
+        phases.add(new ImportReport.Phase("load", null, totalRows, totalBytes, elapsed));
+        phases.addAll(tables);
+    }
+
+    /**
+     * Records a phase which started at {@code start} and took {@code millis} per table, in table order.
+     */
+    void phase(String name, long start, Map<ImportTable, Long> millis) {
+        long elapsed = System.currentTimeMillis() - start;
+        List<ImportReport.Phase> tables = new ArrayList<>();
+        long totalRows = 0;
+        for (ImportTable table : ImportTable.values()) {
+            if (millis.containsKey(table)) {
+                long tableRows = rows.getOrDefault(table, 0L);
+                totalRows += tableRows;
+                tables.add(new ImportReport.Phase(name, table.getTableName(), tableRows, 0, millis.get(table)));
+            }
+        }
+        phases.add(new ImportReport.Phase(name, null, totalRows, 0, elapsed));
+        phases.addAll(tables);
+    }
+
+    ImportReport finish() {
+        return new ImportReport(System.currentTimeMillis() - startMillis, new ArrayList<>(phases));
+    }
+}
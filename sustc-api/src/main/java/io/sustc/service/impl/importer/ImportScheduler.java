@@ -0,0 +1,649 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.ImportReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Creates the import tables and drives a {@link TableLoader} over them.
+ * <p>
+ * {@link #runSequential} loads every table in {@link ImportTable} order inside one transaction, so a failed
+ * import leaves nothing behind. {@link #runParallel} walks the foreign-key graph instead: a table starts once
+ * all its {@link ImportTable#getParents() parents} are committed, tables without a pending parent load
+ * concurrently, and tables larger than {@link ImportConfig#getShardSize()} records are split into key-range
+ * shards loaded on separate pooled connections. Each shard commits on its own.
+ * <p>
+ * With {@link ImportConfig#isDeferConstraints()} the tables are created bare, so there are no foreign keys to
+ * wait for and every table loads at once. The constraints are built afterwards in phases, each spread over
+ * the pool one table per connection: primary keys, secondary indexes, then the {@code NOT VALID} checks and
+ * foreign keys on one connection, and their validation. With {@link ImportConfig#isCluster()} the tables are then
+ * clustered. Both runs end by analyzing the fresh tables.
+ * <p>
+ * With {@link ImportConfig#isStaging()} every import transaction sets its {@code search_path} to
+ * {@link ImportSchema#STAGING_SCHEMA}, so loaders and DDL write to the unlogged staging tables without knowing,
+ * and the finished tables are swapped in by one last transaction.
+ * <p>
+ * Both runs also take a {@link Stream} of {@link ImportData#chunks chunks} instead of the whole data set,
+ * loading each chunk as soon as it is read. A {@link ChunkPipeline} reads the chunks ahead on a thread of its
+ * own, so decoding the next chunks overlaps with loading the current ones.
+ * <p>
+ * With {@link ImportConfig#isResume()} a parallel run checkpoints every shard, chunk and finishing step it
+ * commits, see {@link ImportState}, and a run over the same data picks up after the last checkpoint instead of
+ * recreating the tables. Progress of both runs is logged through {@link ImportProgress}.
+ * <p>
+ * Every run records the time, rows and bytes of its phases, table by table, see {@link #getLastReport()}.
+ */
+@Component
+@Slf4j
+public class ImportScheduler {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ImportConfig importConfig;
+
+    @Autowired
+    private ImportSchema importSchema;
+
+    @Autowired
+    private ImportProgress importProgress;
+
+    private volatile ImportReport lastReport;
+
+    /**
+     * @return the phases of the last run that finished, null if none did
+     */
+    public ImportReport getLastReport() {
+        return lastReport;
+    }
+
+    @Transactional
+    public List<TableStats> runSequential(ImportData data, TableLoader loader) {
+        return sequential(importConfig.isDeferConstraints(), false, totals(data), new ImportRecorder(), conn -> {
+            List<TableStats> stats = new ArrayList<>();
+            for (ImportTable table : ImportTable.values()) {
+                long start = System.currentTimeMillis();
+                long rows = loader.load(table, conn, importConfig.isSortRecords() ? data.sorted(table, 1).get(0) : data);
+                importProgress.loaded(table, data.records(table), rows);
+                stats.add(new TableStats(table, rows, 1, System.currentTimeMillis() - start));
+            }
+            return stats;
+        });
+    }
+
+    /**
+     * Loads chunks as they come from {@code chunks}, all in one transaction. The tables are always created bare,
+     * since a chunk may reference rows of chunks not read yet, and the counter columns are recounted afterwards.
+     */
+    @Transactional
+    public List<TableStats> runSequential(Stream<ImportData> chunks, TableLoader loader) {
+        ImportRecorder recorder = new ImportRecorder();
+        return sequential(true, true, Collections.emptyMap(), recorder, conn -> {
+            List<TableStats> stats = new ArrayList<>();
+            ChunkPipeline pipeline = new ChunkPipeline(chunks, importConfig.getPipelineDepth());
+            try (pipeline) {
+                while (pipeline.hasNext()) {
+                    ImportData chunk = pipeline.next();
+                    List<TableStats> chunkStats = loadChunk(conn, chunk, loader);
+                    loaded(chunk, chunkStats);
+                    stats.addAll(chunkStats);
+                }
+            }
+            report(pipeline, stats, recorder);
+            return merge(stats);
+        });
+    }
+
+    /**
+     * Loads {@code delta} into temporary copies of the tables and merges it into the existing tables with
+     * {@link ImportSchema#mergeDelta}, all in one transaction. Nothing is dropped, and rows the delta does not
+     * mention stay as they are.
+     */
+    @Transactional
+    public List<TableStats> runDelta(ImportData delta, TableLoader loader) {
+        long start = System.currentTimeMillis();
+        ImportRecorder recorder = new ImportRecorder();
+        importProgress.start(totals(delta));
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try {
+            String target = importSchema.currentSchema();
+            importSchema.execute(importSchema.createDeltaTables(target));
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET LOCAL search_path TO pg_temp, " + target);
+            }
+            recorder.step("create tables", start);
+
+            long loadStart = System.currentTimeMillis();
+            List<TableStats> stats = new ArrayList<>();
+            for (ImportTable table : ImportTable.values()) {
+                long tableStart = System.currentTimeMillis();
+                long rows = loader.load(table, conn, delta);
+                importProgress.loaded(table, delta.records(table), rows);
+                stats.add(new TableStats(table, rows, 1, System.currentTimeMillis() - tableStart));
+            }
+            importProgress.stop();
+            recorder.load(stats, loadStart, importProgress);
+            long mergeStart = System.currentTimeMillis();
+            importSchema.execute(importSchema.mergeDelta(target));
+            recorder.step("merge", mergeStart);
+            log.info("Delta merged in {} ms", System.currentTimeMillis() - mergeStart);
+            lastReport = recorder.finish();
+            report(stats, System.currentTimeMillis() - start);
+            return stats;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            importProgress.stop();
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+    }
+
+    public List<TableStats> runParallel(ImportData data, TableLoader loader) {
+        boolean deferred = importConfig.isDeferConstraints();
+        long fingerprint = 31 * (31 * data.fingerprint() + importConfig.getShardSize())
+                + (deferred ? 1 : 0) + (importConfig.isSortRecords() ? 2 : 0);
+        return pooled(deferred, false, fingerprint, totals(data), new ImportRecorder(), (executor, state) -> {
+            Map<ImportTable, CompletableFuture<TableStats>> futures = new EnumMap<>(ImportTable.class);
+            // declaration order is a topological order, so every parent future already exists
+            for (ImportTable table : ImportTable.values()) {
+                // bare tables have no foreign keys to satisfy, so nothing waits for its parents
+                CompletableFuture<?>[] parents = deferred
+                        ? new CompletableFuture<?>[0]
+                        : table.getParents().stream().map(futures::get).toArray(CompletableFuture<?>[]::new);
+                futures.put(table, CompletableFuture.allOf(parents)
+                        .thenCompose(ignored -> loadShards(table, data, loader, executor, state)));
+            }
+
+            List<TableStats> stats = new ArrayList<>();
+            for (CompletableFuture<TableStats> future : futures.values()) {
+                stats.add(future.join());
+            }
+            return stats;
+        });
+    }
+
+    /**
+     * Loads chunks as they come from {@code chunks}, each in its own transaction on the pool. At most
+     * {@link ImportConfig#getParallelism()} chunks are loading while the next one is read, which bounds the
+     * records held in memory. The tables are always created bare, since a chunk may reference rows of chunks
+     * not loaded yet, and the counter columns are recounted afterwards. The time reported per table is summed
+     * over its chunks.
+     * <p>
+     * A resumed run still reads the chunks committed before, as the stream cannot be skipped, but does not load
+     * them again. Each chunk is checkpointed with the {@link ImportData#fingerprint} of its records, and a chunk
+     * read again must match it: otherwise the streams hold other data than the interrupted run, whose committed
+     * chunks cannot be taken out again, so the run fails and its checkpoints are discarded for the next run to
+     * start over.
+     */
+    public List<TableStats> runParallel(Stream<ImportData> chunks, TableLoader loader) {
+        long fingerprint = 31L * ImportState.CHUNK.hashCode() + importConfig.getChunkSize();
+        ImportRecorder recorder = new ImportRecorder();
+        return pooled(true, true, fingerprint, Collections.emptyMap(), recorder, (executor, state) -> {
+            Semaphore inFlight = new Semaphore(importConfig.getParallelism());
+            AtomicBoolean failed = new AtomicBoolean();
+            List<CompletableFuture<List<TableStats>>> futures = new ArrayList<>();
+            ChunkPipeline pipeline = new ChunkPipeline(chunks, importConfig.getPipelineDepth());
+            try (pipeline) {
+                for (int unit = 0; !failed.get() && pipeline.hasNext(); unit++) {
+                    ImportData chunk = pipeline.next();
+                    if (state.isDone(ImportState.CHUNK, unit)) {
+                        if (state.lastKey(ImportState.CHUNK, unit) != chunk.fingerprint()) {
+                            inTransaction(conn -> {
+                                ImportState.discard(conn);
+                                return null;
+                            });
+                            throw new IllegalStateException("chunk " + unit + " differs from the one the interrupted"
+                                    + " import committed; its checkpoints were discarded, import again to start over");
+                        }
+                        for (ImportTable table : ImportTable.values()) {
+                            importProgress.skipped(table, chunk.records(table));
+                        }
+                        continue;
+                    }
+                    int chunkUnit = unit;
+                    inFlight.acquireUninterruptibly();
+                    futures.add(CompletableFuture
+                            .supplyAsync(() -> loadChunk(chunk, chunkUnit, loader, state), executor)
+                            .whenComplete((stats, e) -> {
+                                if (e != null) {
+                                    failed.set(true);
+                                }
+                                inFlight.release();
+                            }));
+                }
+            }
+
+            List<TableStats> stats = new ArrayList<>();
+            for (CompletableFuture<List<TableStats>> future : futures) {
+                stats.addAll(future.join());
+            }
+            report(pipeline, stats, recorder);
+            return merge(stats);
+        });
+    }
+
+    /**
+     * Creates the tables, runs {@code load} on the connection of the current transaction and builds what
+     * the tables were created without.
+     *
+     * @param recount  whether {@code load} wrote the rows without {@link ImportCounters}
+     * @param totals   the records of each table, for {@link ImportProgress}
+     * @param recorder collects the phases of the run, becoming {@link #getLastReport()} once it succeeds
+     */
+    private List<TableStats> sequential(boolean deferred, boolean recount, Map<ImportTable, Integer> totals,
+                                        ImportRecorder recorder, ConnectionCallback<List<TableStats>> load) {
+        long start = System.currentTimeMillis();
+        boolean staging = importConfig.isStaging();
+        importProgress.start(totals);
+
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try {
+            String target = importSchema.currentSchema();
+            if (staging) {
+                importSchema.execute(importSchema.createStagingSchema());
+                try (Statement stmt = conn.createStatement()) {
+                    useStaging(stmt);
+                }
+            }
+            importSchema.execute(importSchema.createTables(deferred, staging, importConfig.getFillfactor()));
+            recorder.step("create tables", start);
+
+            long loadStart = System.currentTimeMillis();
+            List<TableStats> stats = load.doInConnection(conn);
+            importProgress.stop();
+            recorder.load(stats, loadStart, importProgress);
+            long finishStart = System.currentTimeMillis();
+            importSchema.finishTables(deferred, recount, importConfig.isCluster(), recorder);
+            if (staging) {
+                long swapStart = System.currentTimeMillis();
+                importSchema.execute(importSchema.swapIn(target));
+                recorder.step("swap-in", swapStart);
+            }
+            log.info("Constraints, indexes and statistics built in {} ms", System.currentTimeMillis() - finishStart);
+            lastReport = recorder.finish();
+            report(stats, System.currentTimeMillis() - start);
+            return stats;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            importProgress.stop();
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+    }
+
+    /**
+     * Creates the tables, or finds them from the checkpoints of an earlier run, runs {@code load} with a pool of
+     * {@link ImportConfig#getParallelism()} threads and builds what the tables were created without.
+     *
+     * @param recount     whether {@code load} wrote the rows without {@link ImportCounters}
+     * @param fingerprint identifies the data set and the way it is cut into units, to match checkpoints with
+     * @param totals      the records of each table, for {@link ImportProgress}
+     * @param recorder    collects the phases of the run, becoming {@link #getLastReport()} once it succeeds
+     */
+    private List<TableStats> pooled(boolean deferred, boolean recount, long fingerprint,
+                                    Map<ImportTable, Integer> totals, ImportRecorder recorder,
+                                    BiFunction<ExecutorService, ImportState, List<TableStats>> load) {
+        long start = System.currentTimeMillis();
+        boolean staging = importConfig.isStaging();
+        boolean resume = importConfig.isResume();
+        String target = importSchema.currentSchema();
+
+        ExecutorService executor = Executors.newFixedThreadPool(importConfig.getParallelism());
+        try {
+            ImportState state = prepareTables(deferred, fingerprint);
+            recorder.step("create tables", start);
+            importProgress.start(totals);
+            long loadStart = System.currentTimeMillis();
+            List<TableStats> stats = load.apply(executor, state);
+            importProgress.stop();
+            recorder.load(stats, loadStart, importProgress);
+
+            finishTables(deferred, recount, executor, state, recorder);
+            if (staging) {
+                long swapStart = System.currentTimeMillis();
+                execute(importSchema.swapIn(target));
+                recorder.step("swap-in", swapStart);
+                log.info("swap-in: {} ms", System.currentTimeMillis() - swapStart);
+            } else if (resume) {
+                execute(importSchema.dropStateTable());
+            }
+            lastReport = recorder.finish();
+            report(stats, System.currentTimeMillis() - start);
+            return stats;
+        } catch (CompletionException e) {
+            // checkpointed units stay for the next run to resume from
+            discardStaging(staging && !resume);
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new RuntimeException(e.getCause());
+        } catch (RuntimeException e) {
+            discardStaging(staging && !resume);
+            throw e;
+        } finally {
+            importProgress.stop();
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    /**
+     * Waits for units still running on {@code executor}, so a failed run returns only once none of them can
+     * commit anymore. JDBC calls ignore interrupts, so this is the time the statements in flight take to finish.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the import tables, and {@link ImportSchema#STATE_TABLE} if the import is resumable. If the state
+     * table already holds checkpoints of this import, the tables are kept as they are and those checkpoints
+     * are returned instead; checkpoints of another import are dropped with their tables.
+     */
+    private ImportState prepareTables(boolean deferred, long fingerprint) {
+        boolean staging = importConfig.isStaging();
+        if (!importConfig.isResume()) {
+            if (staging) {
+                execute(importSchema.createStagingSchema());
+            }
+            execute(importSchema.createTables(deferred, staging, importConfig.getFillfactor()));
+            return ImportState.NONE;
+        }
+
+        if (inTransaction(ImportState::exists)) {
+            ImportState resumed = inTransaction(conn -> ImportState.read(conn, fingerprint));
+            if (resumed != null) {
+                log.info("Resuming the import after {} committed units", resumed.size());
+                return resumed;
+            }
+            log.info("Discarding the checkpoints of a different import");
+            if (!staging) {
+                execute(importSchema.dropTables());
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        if (staging) {
+            execute(importSchema.createStagingSchema());
+        }
+        statements.addAll(importSchema.createTables(deferred, staging, importConfig.getFillfactor()));
+        statements.addAll(importSchema.createStateTable());
+        return inTransaction(conn -> {
+            execute(conn, statements);
+            return ImportState.begin(conn, fingerprint);
+        });
+    }
+
+    private void finishTables(boolean deferred, boolean recount, ExecutorService executor, ImportState state,
+                              ImportRecorder recorder) {
+        if (recount) {
+            runPhase("counters", importSchema.counters(), executor, state, recorder);
+        }
+        if (deferred) {
+            runPhase("primary keys", importSchema.primaryKeys(), executor, state, recorder);
+        }
+        runPhase("secondary indexes", importSchema.secondaryIndexes(), executor, state, recorder);
+        if (deferred) {
+            // catalog-only statements, but each takes an exclusive lock on both tables of a foreign key
+            String step = "not valid constraints";
+            if (!state.isDone(step, 0)) {
+                long start = System.currentTimeMillis();
+                inTransaction(conn -> {
+                    execute(conn, importSchema.notValidConstraints());
+                    state.record(conn, step, 0, 0, 0, 0);
+                    return null;
+                });
+                recorder.step(step, start);
+            }
+            runPhase("constraint validation", importSchema.validations(), executor, state, recorder);
+        }
+        if (importConfig.isCluster()) {
+            runPhase("cluster", importSchema.cluster(), executor, state, recorder);
+        }
+        runPhase("analyze", importSchema.analyze(), executor, state, recorder);
+    }
+
+    /**
+     * Runs the statements of each table in order in one transaction, all tables concurrently, and waits for them.
+     * Tables checkpointed for {@code phase} by an earlier run are skipped.
+     */
+    private void runPhase(String phase, Map<ImportTable, List<String>> statements, ExecutorService executor,
+                          ImportState state, ImportRecorder recorder) {
+        long start = System.currentTimeMillis();
+        Map<ImportTable, Long> millis = Collections.synchronizedMap(new EnumMap<>(ImportTable.class));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Map.Entry<ImportTable, List<String>> group : statements.entrySet()) {
+            int unit = group.getKey().ordinal();
+            if (state.isDone(phase, unit)) {
+                continue;
+            }
+            futures.add(CompletableFuture.runAsync(() -> inTransaction(conn -> {
+                long tableStart = System.currentTimeMillis();
+                execute(conn, group.getValue());
+                state.record(conn, phase, unit, 0, 0, 0);
+                millis.put(group.getKey(), System.currentTimeMillis() - tableStart);
+                return null;
+            }), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        recorder.phase(phase, start, millis);
+        log.info("{}: {} ms", phase, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Runs {@code statements} in one transaction on a pooled connection.
+     */
+    private void execute(List<String> statements) {
+        inTransaction(conn -> {
+            execute(conn, statements);
+            return null;
+        });
+    }
+
+    private static void execute(Connection conn, List<String> statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code work} in a new transaction on a pooled connection, committing if it succeeds.
+     */
+    private <T> T inTransaction(ConnectionCallback<T> work) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    useStaging(stmt);
+                }
+                T result = work.doInConnection(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Makes unqualified table names of the current transaction resolve to the staging tables, if the import is staged.
+     */
+    private void useStaging(Statement stmt) throws SQLException {
+        if (importConfig.isStaging()) {
+            stmt.execute("SET LOCAL search_path TO " + ImportSchema.STAGING_SCHEMA);
+        }
+    }
+
+    private void discardStaging(boolean staging) {
+        if (!staging) {
+            return;
+        }
+        try {
+            execute(importSchema.dropStagingSchema());
+        } catch (RuntimeException e) {
+            log.warn("Failed to drop the staging schema {}", ImportSchema.STAGING_SCHEMA, e);
+        }
+    }
+
+    /**
+     * Loads the shards of {@code table} not checkpointed yet. A resumable import cuts the table into shards of
+     * {@link ImportConfig#getShardSize()} records, so a failure loses at most that many per connection.
+     * With {@link ImportConfig#isSortRecords()} the records are sorted on the pool first and the shards are
+     * consecutive slices of the sorted records, which keeps each shard's rows on neighbouring pages.
+     */
+    private CompletableFuture<TableStats> loadShards(
+            ImportTable table, ImportData data, TableLoader loader, ExecutorService executor, ImportState state) {
+        int records = data.records(table);
+        int needed = (records + importConfig.getShardSize() - 1) / importConfig.getShardSize();
+        int shardCount = Math.max(1, state.isEnabled() ? needed : Math.min(importConfig.getParallelism(), needed));
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<List<ImportData>> split = importConfig.isSortRecords()
+                ? CompletableFuture.supplyAsync(() -> data.sorted(table, shardCount), executor)
+                : CompletableFuture.completedFuture(data.shard(table, shardCount));
+        return split.thenCompose(parts -> {
+            List<CompletableFuture<Long>> shards = new ArrayList<>();
+            for (int i = 0; i < parts.size(); i++) {
+                ImportData shard = parts.get(i);
+                int unit = i;
+                if (state.isDone(table.getTableName(), unit)) {
+                    importProgress.skipped(table, shard.records(table));
+                    continue;
+                }
+                shards.add(CompletableFuture.supplyAsync(() -> loadShard(table, unit, shard, loader, state), executor));
+            }
+            return CompletableFuture.allOf(shards.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(ignored -> new TableStats(
+                            table,
+                            shards.stream().mapToLong(CompletableFuture::join).sum(),
+                            shards.size(),
+                            System.currentTimeMillis() - start));
+        });
+    }
+
+    private long loadShard(ImportTable table, int unit, ImportData shard, TableLoader loader, ImportState state) {
+        long rows = inTransaction(conn -> {
+            long loaded = loader.load(table, conn, shard);
+            state.record(conn, table.getTableName(), unit, shard.lastKey(table), shard.records(table), loaded);
+            return loaded;
+        });
+        importProgress.loaded(table, shard.records(table), rows);
+        return rows;
+    }
+
+    /**
+     * Loads {@code chunk} in its own transaction and checkpoints it as {@code unit}.
+     */
+    private List<TableStats> loadChunk(ImportData chunk, int unit, TableLoader loader, ImportState state) {
+        List<TableStats> stats = inTransaction(conn -> {
+            List<TableStats> loaded = loadChunk(conn, chunk, loader);
+            long records = 0;
+            long rows = 0;
+            for (TableStats s : loaded) {
+                records += chunk.records(s.getTable());
+                rows += s.getRows();
+            }
+            state.record(conn, ImportState.CHUNK, unit, chunk.fingerprint(), records, rows);
+            return loaded;
+        });
+        loaded(chunk, stats);
+        return stats;
+    }
+
+    private void loaded(ImportData chunk, List<TableStats> stats) {
+        for (TableStats s : stats) {
+            importProgress.loaded(s.getTable(), chunk.records(s.getTable()), s.getRows());
+        }
+    }
+
+    /**
+     * Loads every table derived from the records of {@code chunk}.
+     */
+    private static List<TableStats> loadChunk(Connection conn, ImportData chunk, TableLoader loader)
+            throws SQLException {
+        List<TableStats> stats = new ArrayList<>();
+        for (ImportTable table : ImportTable.values()) {
+            if (chunk.records(table) > 0) {
+                long start = System.currentTimeMillis();
+                long rows = loader.load(table, conn, chunk);
+                stats.add(new TableStats(table, rows, 1, System.currentTimeMillis() - start));
+            }
+        }
+        return stats;
+    }
+
+    private static Map<ImportTable, Integer> totals(ImportData data) {
+        Map<ImportTable, Integer> totals = new EnumMap<>(ImportTable.class);
+        for (ImportTable table : ImportTable.values()) {
+            totals.put(table, data.records(table));
+        }
+        return totals;
+    }
+
+    /**
+     * Sums the stats of the chunks of each table, counting every chunk as a shard.
+     */
+    private static List<TableStats> merge(List<TableStats> stats) {
+        Map<ImportTable, TableStats> merged = new EnumMap<>(ImportTable.class);
+        for (TableStats s : stats) {
+            merged.merge(s.getTable(), s, (a, b) -> new TableStats(a.getTable(),
+                    a.getRows() + b.getRows(),
+                    a.getShards() + b.getShards(),
+                    a.getElapsedMillis() + b.getElapsedMillis()));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Logs the time each stage of a streamed import spent working and waiting for the other one, and records
+     * the reading as a phase of its own.
+     */
+    private static void report(ChunkPipeline pipeline, List<TableStats> stats, ImportRecorder recorder) {
+        recorder.took("read", pipeline.getReadMillis());
+        long loadMillis = 0;
+        for (TableStats s : stats) {
+            loadMillis += s.getElapsedMillis();
+        }
+        log.info("Pipeline: read {} ms, waited {} ms for the load; load {} ms summed over chunks, waited {} ms for the reader",
+                pipeline.getReadMillis(), pipeline.getReaderWaitMillis(), loadMillis, pipeline.getLoaderWaitMillis());
+    }
+
+    private static void report(List<TableStats> stats, long totalMillis) {
+        for (TableStats s : stats) {
+            log.info("{}: {} rows in {} ms over {} shard(s), {} rows/s",
+                    s.getTable().getTableName(), s.getRows(), s.getElapsedMillis(), s.getShards(), s.getRowsPerSecond());
+        }
+        log.info("Import finished in {} ms", totalMillis);
+    }
+}
@@ -0,0 +1,645 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.IndexReport;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * DDL of the tables filled by the import.
+ * <p>
+ * Tables are created either with all constraints inline, or bare so rows load without index maintenance
+ * and foreign-key lookups. For bare tables the constraints are added after the load: primary keys first,
+ * then every CHECK and FOREIGN KEY as {@code NOT VALID} followed by a separate {@code VALIDATE}, which only
+ * needs a light lock and can run for several tables at once. Constraint names match the ones PostgreSQL
+ * generates for the inline form, so both paths end with the same schema.
+ * <p>
+ * For a staged import the tables are created {@code UNLOGGED} in {@link #STAGING_SCHEMA}, which the import
+ * connections put first on their {@code search_path}, and {@link #swapIn} moves them over the live tables
+ * once everything is built. Until then the previous tables stay untouched.
+ * <p>
+ * A delta import loads its records into temporary tables shadowing the import tables, see
+ * {@link #createDeltaTables}, and merges them with {@link #mergeDelta}.
+ * <p>
+ * A resumable import also creates {@link #STATE_TABLE} next to its tables, see {@link ImportState}.
+ * <p>
+ * Methods returning a map group statements per table: statements of one table run in order,
+ * different tables may run concurrently.
+ */
+@Component
+public class ImportSchema {
+
+    public static final String STAGING_SCHEMA = "sustc_import";
+
+    /**
+     * Checkpoints of a resumable import, kept in the schema the tables are loaded into.
+     */
+    public static final String STATE_TABLE = "import_state";
+
+    /**
+     * Schema pg_trgm is installed into, so its operator classes resolve from the staging schema too.
+     */
+    private static final String EXTENSION_SCHEMA = "public";
+
+    private static final Map<ImportTable, String[]> COLUMNS = new EnumMap<>(ImportTable.class);
+
+    private static final List<Constraint> CONSTRAINTS = new ArrayList<>();
+
+    private static final List<Index> INDEXES = new ArrayList<>();
+
+    private static final Map<ImportTable, String> PRIMARY_KEYS = new EnumMap<>(ImportTable.class);
+
+    /**
+     * Columns derived from other tables, see {@link ImportCounters}.
+     */
+    private static final Set<String> COUNTER_COLUMNS = Set.of(
+            "FollowerCnt", "FollowingCnt", "ReviewCnt", "RatingSum", "IngredientCnt", "LikeCnt");
+
+    /**
+     * Tables whose rows the services update in place, which a fillfactor below 100 leaves room for.
+     * Link tables only see inserts and deletes.
+     */
+    private static final Set<ImportTable> UPDATED_TABLES = EnumSet.of(
+            ImportTable.USERS, ImportTable.RECIPES, ImportTable.REVIEWS);
+
+    static {
+        COLUMNS.put(ImportTable.USERS, new String[]{
+                "AuthorId BIGINT NOT NULL",
+                "AuthorName VARCHAR(255) NOT NULL",
+                "Gender VARCHAR(10)",
+                "Age INTEGER",
+                "Followers INTEGER DEFAULT 0",
+                "Following INTEGER DEFAULT 0",
+                "Password VARCHAR(255)",
+                "IsDeleted BOOLEAN DEFAULT FALSE",
+                "FollowerCnt INTEGER NOT NULL DEFAULT 0",
+                "FollowingCnt INTEGER NOT NULL DEFAULT 0"
+        });
+        primaryKey(ImportTable.USERS, "AuthorId");
+        check(ImportTable.USERS, "users_gender_check", "Gender IN ('Male', 'Female')");
+        check(ImportTable.USERS, "users_age_check", "Age > 0");
+        check(ImportTable.USERS, "users_followers_check", "Followers >= 0");
+        check(ImportTable.USERS, "users_following_check", "Following >= 0");
+
+        COLUMNS.put(ImportTable.RECIPES, new String[]{
+                "RecipeId BIGINT NOT NULL",
+                "Name VARCHAR(500) NOT NULL",
+                "AuthorId BIGINT NOT NULL",
+                "CookTime VARCHAR(50)",
+                "PrepTime VARCHAR(50)",
+                "TotalTime VARCHAR(50)",
+                "DatePublished TIMESTAMP",
+                "Description TEXT",
+                "RecipeCategory VARCHAR(255)",
+                "AggregatedRating DECIMAL(3,2)",
+                "ReviewCount INTEGER DEFAULT 0",
+                "Calories DECIMAL(10,2)",
+                "FatContent DECIMAL(10,2)",
+                "SaturatedFatContent DECIMAL(10,2)",
+                "CholesterolContent DECIMAL(10,2)",
+                "SodiumContent DECIMAL(10,2)",
+                "CarbohydrateContent DECIMAL(10,2)",
+                "FiberContent DECIMAL(10,2)",
+                "SugarContent DECIMAL(10,2)",
+                "ProteinContent DECIMAL(10,2)",
+                "RecipeServings VARCHAR(100)",
+                "RecipeYield VARCHAR(100)",
+                "ReviewCnt INTEGER NOT NULL DEFAULT 0",
+                "RatingSum BIGINT NOT NULL DEFAULT 0",
+                "IngredientCnt INTEGER NOT NULL DEFAULT 0"
+        });
+        primaryKey(ImportTable.RECIPES, "RecipeId");
+        check(ImportTable.RECIPES, "recipes_aggregatedrating_check", "AggregatedRating >= 0 AND AggregatedRating <= 5");
+        check(ImportTable.RECIPES, "recipes_reviewcount_check", "ReviewCount >= 0");
+        foreignKey(ImportTable.RECIPES, "AuthorId", ImportTable.USERS, "AuthorId");
+
+        COLUMNS.put(ImportTable.REVIEWS, new String[]{
+                "ReviewId BIGINT NOT NULL",
+                "RecipeId BIGINT NOT NULL",
+                "AuthorId BIGINT NOT NULL",
+                "Rating INTEGER",
+                "Review TEXT",
+                "DateSubmitted TIMESTAMP",
+                "DateModified TIMESTAMP",
+                "LikeCnt INTEGER NOT NULL DEFAULT 0"
+        });
+        primaryKey(ImportTable.REVIEWS, "ReviewId");
+        foreignKey(ImportTable.REVIEWS, "RecipeId", ImportTable.RECIPES, "RecipeId");
+        foreignKey(ImportTable.REVIEWS, "AuthorId", ImportTable.USERS, "AuthorId");
+
+        COLUMNS.put(ImportTable.RECIPE_INGREDIENTS, new String[]{
+                "RecipeId BIGINT NOT NULL",
+                "IngredientPart VARCHAR(500) NOT NULL"
+        });
+        primaryKey(ImportTable.RECIPE_INGREDIENTS, "RecipeId, IngredientPart");
+        foreignKey(ImportTable.RECIPE_INGREDIENTS, "RecipeId", ImportTable.RECIPES, "RecipeId");
+
+        COLUMNS.put(ImportTable.REVIEW_LIKES, new String[]{
+                "ReviewId BIGINT NOT NULL",
+                "AuthorId BIGINT NOT NULL"
+        });
+        primaryKey(ImportTable.REVIEW_LIKES, "ReviewId, AuthorId");
+        foreignKey(ImportTable.REVIEW_LIKES, "ReviewId", ImportTable.REVIEWS, "ReviewId");
+        foreignKey(ImportTable.REVIEW_LIKES, "AuthorId", ImportTable.USERS, "AuthorId");
+
+        COLUMNS.put(ImportTable.USER_FOLLOWS, new String[]{
+                "FollowerId BIGINT NOT NULL",
+                "FollowingId BIGINT NOT NULL"
+        });
+        primaryKey(ImportTable.USER_FOLLOWS, "FollowerId, FollowingId");
+        foreignKey(ImportTable.USER_FOLLOWS, "FollowerId", ImportTable.USERS, "AuthorId");
+        foreignKey(ImportTable.USER_FOLLOWS, "FollowingId", ImportTable.USERS, "AuthorId");
+        check(ImportTable.USER_FOLLOWS, "user_follows_check", "FollowerId != FollowingId");
+
+        // One index per query shape of the services, see indexReport for which of them get used. Users are
+        // only ever marked deleted, so the authors of reviews and likes need none: nothing deletes by them.
+        // Columns a query only filters on are INCLUDEd, so the id-only inner query of a search page can be
+        // answered from the index once the visibility map is set.
+
+        // UserServiceImpl.register: whether the name is taken.
+        index(ImportTable.USERS, "AuthorName");
+        // UserServiceImpl.feed and feedAfter: recipes of the followed authors, newest first, by category.
+        index(ImportTable.RECIPES, "AuthorId, DatePublished, RecipeId", "RecipeCategory");
+        // RecipeServiceImpl.searchRecipes by category, and its pages in date order.
+        index(ImportTable.RECIPES, "RecipeCategory, DatePublished, RecipeId", "AggregatedRating");
+        // RecipeServiceImpl.searchRecipes sorted by date_desc, rating_desc and calories_asc.
+        index(ImportTable.RECIPES, "DatePublished, RecipeId", "RecipeCategory", "AggregatedRating");
+        index(ImportTable.RECIPES, "AggregatedRating, RecipeId", "RecipeCategory");
+        // Also RecipeServiceImpl.getClosestCaloriePair, which walks recipes in calorie order.
+        index(ImportTable.RECIPES, "Calories, RecipeId DESC", "RecipeCategory", "AggregatedRating");
+        // RecipeServiceImpl.getTop3MostComplexRecipesByIngredients.
+        index(ImportTable.RECIPES, "IngredientCnt DESC, RecipeId");
+        // ReviewServiceImpl.listByRecipe sorted by date and by likes. The date one also serves every other
+        // lookup of the reviews of a recipe, and the ratings the feed reads for its recipes without the heap.
+        index(ImportTable.REVIEWS, "RecipeId, DateModified, ReviewId", "Rating");
+        index(ImportTable.REVIEWS, "RecipeId, LikeCnt, ReviewId");
+        // UserServiceImpl.getUser and deleteAccount: followers of a user.
+        index(ImportTable.USER_FOLLOWS, "FollowingId, FollowerId");
+
+        // Substring search of RecipeService.searchRecipes, ILIKE '%keyword%' on either column.
+        trigramIndex(ImportTable.RECIPES, "Name");
+        trigramIndex(ImportTable.RECIPES, "Description");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return the statements creating the pg_trgm extension if missing, then every import table in
+     *         {@link ImportTable} order
+     * @param deferConstraints whether to leave out primary keys, checks and foreign keys,
+     *                         to be added by {@link #primaryKeys()}, {@link #notValidConstraints()}
+     *                         and {@link #validations()} once the data is loaded
+     * @param unlogged         whether to create the tables without WAL, for {@link #STAGING_SCHEMA}
+     * @param fillfactor       percentage of each heap page filled by the load in tables updated in place
+     */
+    public List<String> createTables(boolean deferConstraints, boolean unlogged, int fillfactor) {
+        List<String> statements = new ArrayList<>();
+        statements.add("CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA " + EXTENSION_SCHEMA);
+        for (ImportTable table : ImportTable.values()) {
+            List<String> definitions = new ArrayList<>(Arrays.asList(COLUMNS.get(table)));
+            if (!deferConstraints) {
+                for (Constraint c : CONSTRAINTS) {
+                    if (c.getTable() == table) {
+                        definitions.add("CONSTRAINT " + c.getName() + " " + c.getDefinition());
+                    }
+                }
+            }
+            String storage = fillfactor < 100 && UPDATED_TABLES.contains(table)
+                    ? " WITH (fillfactor = " + fillfactor + ")"
+                    : "";
+            statements.add("CREATE " + (unlogged ? "UNLOGGED " : "") + "TABLE IF NOT EXISTS "
+                    + table.getTableName() + " (" + String.join(", ", definitions) + ")" + storage);
+        }
+        return statements;
+    }
+
+    /**
+     * @return the statements giving a staged import an empty {@link #STAGING_SCHEMA}
+     */
+    public List<String> createStagingSchema() {
+        List<String> statements = new ArrayList<>(dropStagingSchema());
+        statements.add("CREATE SCHEMA " + STAGING_SCHEMA);
+        return statements;
+    }
+
+    public List<String> dropStagingSchema() {
+        return List.of("DROP SCHEMA IF EXISTS " + STAGING_SCHEMA + " CASCADE");
+    }
+
+    /**
+     * Moves the staged tables into {@code schema}, replacing the tables there. The statements must run
+     * in one transaction. Tables turn logged parents first, since a logged table may not reference
+     * an unlogged one.
+     */
+    public List<String> swapIn(String schema) {
+        List<String> statements = new ArrayList<>();
+        for (ImportTable table : ImportTable.values()) {
+            statements.add("ALTER TABLE " + STAGING_SCHEMA + "." + table.getTableName() + " SET LOGGED");
+        }
+        for (ImportTable table : ImportTable.values()) {
+            statements.add("DROP TABLE IF EXISTS " + schema + "." + table.getTableName() + " CASCADE");
+        }
+        for (ImportTable table : ImportTable.values()) {
+            statements.add("ALTER TABLE " + STAGING_SCHEMA + "." + table.getTableName() + " SET SCHEMA " + schema);
+        }
+        statements.addAll(dropStagingSchema());
+        return statements;
+    }
+
+    public List<String> createStateTable() {
+        return List.of("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    Step VARCHAR(64) NOT NULL,
+                    Unit INTEGER NOT NULL,
+                    LastKey BIGINT NOT NULL,
+                    Records BIGINT NOT NULL,
+                    Rows BIGINT NOT NULL,
+                    CommittedAt TIMESTAMP NOT NULL DEFAULT now(),
+                    PRIMARY KEY (Step, Unit)
+                )""".formatted(STATE_TABLE));
+    }
+
+    public List<String> dropStateTable() {
+        return List.of("DROP TABLE IF EXISTS " + STATE_TABLE);
+    }
+
+    /**
+     * @return the statements dropping the import tables and {@link #STATE_TABLE} of an import that cannot be resumed
+     */
+    public List<String> dropTables() {
+        List<String> statements = new ArrayList<>(dropStateTable());
+        for (ImportTable table : ImportTable.values()) {
+            statements.add("DROP TABLE IF EXISTS " + table.getTableName() + " CASCADE");
+        }
+        return statements;
+    }
+
+    /**
+     * @return the schema unqualified table names currently resolve to
+     */
+    public String currentSchema() {
+        return jdbcTemplate.queryForObject("SELECT current_schema()", String.class);
+    }
+
+    /**
+     * @return statements recounting the counter columns from the link tables, for loads written without
+     *         {@link ImportCounters}
+     */
+    public Map<ImportTable, List<String>> counters() {
+        Map<ImportTable, List<String>> statements = new EnumMap<>(ImportTable.class);
+        add(statements, ImportTable.USERS, """
+                UPDATE users SET FollowerCnt = c.cnt
+                FROM (SELECT FollowingId, count(*) AS cnt FROM user_follows GROUP BY FollowingId) c
+                WHERE AuthorId = c.FollowingId""");
+        add(statements, ImportTable.USERS, """
+                UPDATE users SET FollowingCnt = c.cnt
+                FROM (SELECT FollowerId, count(*) AS cnt FROM user_follows GROUP BY FollowerId) c
+                WHERE AuthorId = c.FollowerId""");
+        add(statements, ImportTable.REVIEWS, """
+                UPDATE reviews SET LikeCnt = c.cnt
+                FROM (SELECT ReviewId, count(*) AS cnt FROM review_likes GROUP BY ReviewId) c
+                WHERE reviews.ReviewId = c.ReviewId""");
+        add(statements, ImportTable.RECIPES, """
+                UPDATE recipes SET ReviewCnt = c.cnt, RatingSum = c.total
+                FROM (SELECT RecipeId, count(*) AS cnt, coalesce(sum(Rating), 0) AS total
+                      FROM reviews GROUP BY RecipeId) c
+                WHERE recipes.RecipeId = c.RecipeId""");
+        add(statements, ImportTable.RECIPES, """
+                UPDATE recipes SET IngredientCnt = c.cnt
+                FROM (SELECT RecipeId, count(*) AS cnt FROM recipe_ingredients GROUP BY RecipeId) c
+                WHERE recipes.RecipeId = c.RecipeId""");
+        return statements;
+    }
+
+    /**
+     * @return statements creating an empty temporary copy of every table of {@code schema}, dropped at commit.
+     *         With {@code pg_temp} first on the {@code search_path}, loaders then write into the copies.
+     */
+    public List<String> createDeltaTables(String schema) {
+        List<String> statements = new ArrayList<>();
+        for (ImportTable table : ImportTable.values()) {
+            statements.add("CREATE TEMP TABLE " + table.getTableName() + " (LIKE " + schema + "."
+                    + table.getTableName() + " INCLUDING DEFAULTS) ON COMMIT DROP");
+        }
+        return statements;
+    }
+
+    /**
+     * Merges the delta loaded into the tables of {@link #createDeltaTables} into the tables of {@code schema},
+     * in one transaction. Users, recipes and reviews are upserted by key, keeping their counter columns. Their link
+     * rows are replaced by the delta's: the followings of a user, the ingredients of a recipe and the likes of a
+     * review. The counters of every row the merge may have changed are then recounted, and recipes whose
+     * reviews changed get their {@code ReviewCount} and {@code AggregatedRating} recomputed like
+     * {@link io.sustc.service.ReviewService} does.
+     */
+    public List<String> mergeDelta(String schema) {
+        List<String> statements = new ArrayList<>();
+        // rows whose counters may change, taken before the merge moves links and reviews away from them
+        statements.add("""
+                CREATE TEMP TABLE delta_authors ON COMMIT DROP AS
+                SELECT AuthorId FROM pg_temp.users
+                UNION SELECT FollowingId FROM %1$s.user_follows WHERE FollowerId IN (SELECT AuthorId FROM pg_temp.users)
+                UNION SELECT FollowingId FROM pg_temp.user_follows""".formatted(schema));
+        statements.add("""
+                CREATE TEMP TABLE delta_rated ON COMMIT DROP AS
+                SELECT RecipeId FROM pg_temp.reviews
+                UNION SELECT RecipeId FROM %1$s.reviews WHERE ReviewId IN (SELECT ReviewId FROM pg_temp.reviews)"""
+                .formatted(schema));
+        for (ImportTable table : ImportTable.values()) {
+            statements.add("ANALYZE pg_temp." + table.getTableName());
+        }
+
+        for (ImportTable table : List.of(ImportTable.USERS, ImportTable.RECIPES, ImportTable.REVIEWS)) {
+            statements.add(upsert(schema, table));
+        }
+        replaceLinks(statements, schema, ImportTable.USER_FOLLOWS, "FollowerId", ImportTable.USERS, "AuthorId");
+        replaceLinks(statements, schema, ImportTable.RECIPE_INGREDIENTS, "RecipeId", ImportTable.RECIPES, "RecipeId");
+        replaceLinks(statements, schema, ImportTable.REVIEW_LIKES, "ReviewId", ImportTable.REVIEWS, "ReviewId");
+
+        statements.add("""
+                UPDATE %1$s.users u SET
+                    FollowerCnt = (SELECT count(*) FROM %1$s.user_follows f WHERE f.FollowingId = u.AuthorId),
+                    FollowingCnt = (SELECT count(*) FROM %1$s.user_follows f WHERE f.FollowerId = u.AuthorId)
+                WHERE u.AuthorId IN (SELECT AuthorId FROM pg_temp.delta_authors)""".formatted(schema));
+        statements.add("""
+                UPDATE %1$s.reviews v SET
+                    LikeCnt = (SELECT count(*) FROM %1$s.review_likes l WHERE l.ReviewId = v.ReviewId)
+                WHERE v.ReviewId IN (SELECT ReviewId FROM pg_temp.reviews)""".formatted(schema));
+        statements.add("""
+                UPDATE %1$s.recipes r SET
+                    ReviewCnt = (SELECT count(*) FROM %1$s.reviews v WHERE v.RecipeId = r.RecipeId),
+                    RatingSum = (SELECT coalesce(sum(Rating), 0) FROM %1$s.reviews v WHERE v.RecipeId = r.RecipeId),
+                    IngredientCnt = (SELECT count(*) FROM %1$s.recipe_ingredients i WHERE i.RecipeId = r.RecipeId)
+                WHERE r.RecipeId IN (SELECT RecipeId FROM pg_temp.recipes UNION SELECT RecipeId FROM pg_temp.delta_rated)"""
+                .formatted(schema));
+        statements.add("""
+                UPDATE %1$s.recipes SET
+                    ReviewCount = ReviewCnt,
+                    AggregatedRating = coalesce(round(RatingSum::numeric / nullif(ReviewCnt, 0), 3), 0)
+                WHERE RecipeId IN (SELECT RecipeId FROM pg_temp.delta_rated)""".formatted(schema));
+        return statements;
+    }
+
+    public Map<ImportTable, List<String>> primaryKeys() {
+        Map<ImportTable, List<String>> statements = new EnumMap<>(ImportTable.class);
+        for (Constraint c : CONSTRAINTS) {
+            if (c.isPrimaryKey()) {
+                add(statements, c.getTable(), addConstraint(c, ""));
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * @return {@code ADD CONSTRAINT ... NOT VALID} for every check and foreign key; these only touch the catalog
+     */
+    public List<String> notValidConstraints() {
+        List<String> statements = new ArrayList<>();
+        for (Constraint c : CONSTRAINTS) {
+            if (!c.isPrimaryKey()) {
+                statements.add(addConstraint(c, " NOT VALID"));
+            }
+        }
+        return statements;
+    }
+
+    public Map<ImportTable, List<String>> validations() {
+        Map<ImportTable, List<String>> statements = new EnumMap<>(ImportTable.class);
+        for (Constraint c : CONSTRAINTS) {
+            if (!c.isPrimaryKey()) {
+                add(statements, c.getTable(),
+                        "ALTER TABLE " + c.getTable().getTableName() + " VALIDATE CONSTRAINT " + c.getName());
+            }
+        }
+        return statements;
+    }
+
+    public Map<ImportTable, List<String>> secondaryIndexes() {
+        Map<ImportTable, List<String>> statements = new EnumMap<>(ImportTable.class);
+        for (Index index : INDEXES) {
+            add(statements, index.getTable(), index.create());
+        }
+        return statements;
+    }
+
+    /**
+     * @return {@code CLUSTER} statements rewriting every table in the order its hot range scans read it:
+     *         recipes by author, reviews by recipe and the other tables by primary key. The index leading
+     *         with the author or recipe is the one also ordered the way the feed and review pages read
+     */
+    public Map<ImportTable, List<String>> cluster() {
+        Map<ImportTable, List<String>> statements = new EnumMap<>(ImportTable.class);
+        for (ImportTable table : ImportTable.values()) {
+            String index = switch (table) {
+                case RECIPES -> indexName(table, "AuthorId, DatePublished, RecipeId");
+                case REVIEWS -> indexName(table, "RecipeId, DateModified, ReviewId");
+                default -> table.getTableName() + "_pkey";
+            };
+            add(statements, table, "CLUSTER " + table.getTableName() + " USING " + index);
+        }
+        return statements;
+    }
+
+    public Map<ImportTable, List<String>> analyze() {
+        Map<ImportTable, List<String>> statements = new EnumMap<>(ImportTable.class);
+        for (ImportTable table : ImportTable.values()) {
+            add(statements, table, "ANALYZE " + table.getTableName());
+        }
+        return statements;
+    }
+
+    /**
+     * Checks the secondary indexes of the import tables in the current schema against the ones the import
+     * builds, with the scans {@code pg_stat_user_indexes} counted for each. The counts start over with every
+     * import, which creates the tables anew, and may lag behind the last few statements.
+     */
+    public IndexReport indexReport() {
+        String tables = Arrays.stream(ImportTable.values())
+                .map(table -> "'" + table.getTableName() + "'")
+                .collect(Collectors.joining(", "));
+        Map<String, IndexReport.Index> existing = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                SELECT s.relname, s.indexrelname, pg_get_indexdef(s.indexrelid) AS definition, s.idx_scan,
+                       pg_relation_size(s.indexrelid) AS bytes
+                FROM pg_stat_user_indexes s
+                JOIN pg_index i ON i.indexrelid = s.indexrelid
+                WHERE s.schemaname = current_schema() AND NOT i.indisprimary AND s.relname IN (%s)
+                ORDER BY s.relname, s.indexrelname
+                """.formatted(tables), rs -> {
+            long scans = rs.getLong("idx_scan");
+            existing.put(rs.getString("indexrelname"), new IndexReport.Index(rs.getString("relname"),
+                    rs.getString("indexrelname"), rs.getString("definition"),
+                    scans > 0 ? IndexReport.Status.USED : IndexReport.Status.UNUSED, scans, rs.getLong("bytes")));
+        });
+
+        List<IndexReport.Index> indexes = new ArrayList<>();
+        for (Index index : INDEXES) {
+            IndexReport.Index found = existing.remove(index.getName());
+            indexes.add(found != null ? found : new IndexReport.Index(index.getTable().getTableName(),
+                    index.getName(), index.create(), IndexReport.Status.MISSING, 0, 0));
+        }
+        // Whatever is left was not built by the import
+        for (IndexReport.Index index : existing.values()) {
+            index.setStatus(IndexReport.Status.UNMANAGED);
+            indexes.add(index);
+        }
+
+        List<IndexReport.Table> scans = jdbcTemplate.query("""
+                SELECT relname, seq_scan, seq_tup_read, coalesce(idx_scan, 0) AS idx_scan
+                FROM pg_stat_user_tables
+                WHERE schemaname = current_schema() AND relname IN (%s)
+                ORDER BY relname
+                """.formatted(tables), (rs, rowNum) -> new IndexReport.Table(rs.getString("relname"),
+                rs.getLong("seq_scan"), rs.getLong("seq_tup_read"), rs.getLong("idx_scan")));
+        return new IndexReport(indexes, scans);
+    }
+
+    /**
+     * Runs every statement needed after a load into tables created by {@link #createTables},
+     * one after another on the current connection, and records the time of each phase and table.
+     */
+    void finishTables(boolean deferConstraints, boolean recount, boolean cluster, ImportRecorder recorder) {
+        if (recount) {
+            execute("counters", counters(), recorder);
+        }
+        if (deferConstraints) {
+            execute("primary keys", primaryKeys(), recorder);
+        }
+        execute("secondary indexes", secondaryIndexes(), recorder);
+        if (deferConstraints) {
+            long start = System.currentTimeMillis();
+            execute(notValidConstraints());
+            recorder.step("not valid constraints", start);
+            execute("constraint validation", validations(), recorder);
+        }
+        if (cluster) {
+            execute("cluster", cluster(), recorder);
+        }
+        execute("analyze", analyze(), recorder);
+    }
+
+    /**
+     * Runs {@code statements} through the {@link JdbcTemplate}, so on the connection of the current transaction if any.
+     */
+    public void execute(List<String> statements) {
+        for (String sql : statements) {
+            jdbcTemplate.execute(sql);
+        }
+    }
+
+    private void execute(String phase, Map<ImportTable, List<String>> statements, ImportRecorder recorder) {
+        long start = System.currentTimeMillis();
+        Map<ImportTable, Long> millis = new EnumMap<>(ImportTable.class);
+        for (Map.Entry<ImportTable, List<String>> group : statements.entrySet()) {
+            long tableStart = System.currentTimeMillis();
+            execute(group.getValue());
+            millis.put(group.getKey(), System.currentTimeMillis() - tableStart);
+        }
+        recorder.phase(phase, start, millis);
+    }
+
+    private static String addConstraint(Constraint c, String suffix) {
+        return "ALTER TABLE " + c.getTable().getTableName()
+                + " ADD CONSTRAINT " + c.getName() + " " + c.getDefinition() + suffix;
+    }
+
+    private static void add(Map<ImportTable, List<String>> statements, ImportTable table, String sql) {
+        statements.computeIfAbsent(table, t -> new ArrayList<>()).add(sql);
+    }
+
+    private static String upsert(String schema, ImportTable table) {
+        List<String> columns = Arrays.stream(COLUMNS.get(table))
+                .map(definition -> definition.substring(0, definition.indexOf(' ')))
+                .filter(column -> !COUNTER_COLUMNS.contains(column))
+                .collect(Collectors.toList());
+        String key = PRIMARY_KEYS.get(table);
+        String updates = columns.stream()
+                .filter(column -> !key.equals(column))
+                .map(column -> column + " = EXCLUDED." + column)
+                .collect(Collectors.joining(", "));
+        String list = String.join(", ", columns);
+        return "INSERT INTO " + schema + "." + table.getTableName() + " (" + list + ")"
+                + " SELECT " + list + " FROM pg_temp." + table.getTableName()
+                + " ON CONFLICT (" + key + ") DO UPDATE SET " + updates;
+    }
+
+    /**
+     * Replaces the rows of {@code links} owned by the delta's {@code owner} records with the delta's rows.
+     */
+    private static void replaceLinks(List<String> statements, String schema,
+                                     ImportTable links, String column, ImportTable owner, String ownerKey) {
+        statements.add("DELETE FROM " + schema + "." + links.getTableName() + " WHERE " + column
+                + " IN (SELECT " + ownerKey + " FROM pg_temp." + owner.getTableName() + ")");
+        statements.add("INSERT INTO " + schema + "." + links.getTableName()
+                + " SELECT * FROM pg_temp." + links.getTableName());
+    }
+
+    private static void primaryKey(ImportTable table, String columns) {
+        PRIMARY_KEYS.put(table, columns);
+        CONSTRAINTS.add(new Constraint(table, table.getTableName() + "_pkey", "PRIMARY KEY (" + columns + ")", true));
+    }
+
+    private static void check(ImportTable table, String name, String condition) {
+        CONSTRAINTS.add(new Constraint(table, name, "CHECK (" + condition + ")", false));
+    }
+
+    private static void foreignKey(ImportTable table, String column, ImportTable parent, String parentColumn) {
+        String name = table.getTableName() + "_" + column.toLowerCase() + "_fkey";
+        CONSTRAINTS.add(new Constraint(table, name,
+                "FOREIGN KEY (" + column + ") REFERENCES " + parent.getTableName() + "(" + parentColumn + ")", false));
+    }
+
+    /**
+     * Adds a btree index on {@code columns}, which also stores the {@code include} columns in its leaves.
+     */
+    private static void index(ImportTable table, String columns, String... include) {
+        INDEXES.add(new Index(table, indexName(table, columns), "btree", columns, String.join(", ", include)));
+    }
+
+    /**
+     * Adds a pg_trgm GIN index on {@code column}, which serves {@code LIKE} and {@code ILIKE} with wildcards
+     * on both sides once the pattern has three characters between them.
+     */
+    private static void trigramIndex(ImportTable table, String column) {
+        INDEXES.add(new Index(table, table.getTableName() + "_" + column.toLowerCase() + "_trgm_idx", "gin",
+                column + " " + EXTENSION_SCHEMA + ".gin_trgm_ops", ""));
+    }
+
+    private static String indexName(ImportTable table, String columns) {
+        return table.getTableName() + "_" + columns.toLowerCase().replaceAll("\\W+", "_") + "_idx";
+    }
+
+    @Value
+    private static class Constraint {
+        ImportTable table;
+        String name;
+        String definition;
+        boolean primaryKey;
+    }
+
+    @Value
+    private static class Index {
+        ImportTable table;
+        String name;
+        String method;
+        String columns;
+        String include;
+
+        String create() {
+            return "CREATE INDEX IF NOT EXISTS " + name + " ON " + table.getTableName() + " USING " + method
+                    + " (" + columns + ")" + (include.isEmpty() ? "" : " INCLUDE (" + include + ")");
+        }
+    }
+}
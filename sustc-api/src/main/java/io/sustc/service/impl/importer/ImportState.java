@@ -0,0 +1,138 @@
+package io.sustc.service.impl.importer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checkpoints of a resumable import, read from {@link ImportSchema#STATE_TABLE} when the import starts.
+ * <p>
+ * Every unit of work records a row there in the same transaction as its data, so the table always names
+ * exactly the committed units: a key-range shard of a table (step = table name, with the shard's last key),
+ * a streamed chunk (step {@value #CHUNK}, with the {@link ImportData#fingerprint} of its records) or the statements of one table in a finishing phase
+ * (step = phase name, unit = table ordinal). The {@value #IMPORT} row holds a fingerprint of the data set and
+ * of the settings that decide how it is cut into units; checkpoints of another fingerprint are never resumed.
+ */
+final class ImportState {
+
+    static final String IMPORT = "import";
+
+    static final String CHUNK = "chunk";
+
+    /**
+     * State of an import that keeps no checkpoints.
+     */
+    static final ImportState NONE = new ImportState(false, Collections.emptyMap());
+
+    private final boolean enabled;
+
+    /**
+     * Last key recorded with each committed unit.
+     */
+    private final Map<String, Long> done;
+
+    private ImportState(boolean enabled, Map<String, Long> done) {
+        this.enabled = enabled;
+        this.done = done;
+    }
+
+    static boolean exists(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT to_regclass('" + ImportSchema.STATE_TABLE + "') IS NOT NULL")) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * @return the checkpoints in {@link ImportSchema#STATE_TABLE}, or null if they belong to an import
+     *         with another fingerprint
+     */
+    static ImportState read(Connection conn, long fingerprint) throws SQLException {
+        Map<String, Long> done = new HashMap<>();
+        boolean matches = false;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT Step, Unit, LastKey FROM " + ImportSchema.STATE_TABLE)) {
+            while (rs.next()) {
+                if (IMPORT.equals(rs.getString(1))) {
+                    matches = rs.getLong(3) == fingerprint;
+                } else {
+                    done.put(key(rs.getString(1), rs.getInt(2)), rs.getLong(3));
+                }
+            }
+        }
+        return matches ? new ImportState(true, done) : null;
+    }
+
+    /**
+     * Records the fingerprint of a fresh import into an empty {@link ImportSchema#STATE_TABLE}.
+     */
+    static ImportState begin(Connection conn, long fingerprint) throws SQLException {
+        insert(conn, IMPORT, 0, fingerprint, 0, 0);
+        return new ImportState(true, Collections.emptyMap());
+    }
+
+    /**
+     * Removes the fingerprint of the import, so the next run discards the checkpoints and the tables with them
+     * instead of resuming.
+     */
+    static void discard(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + ImportSchema.STATE_TABLE + " WHERE Step = '" + IMPORT + "'");
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    boolean isDone(String step, int unit) {
+        return done.containsKey(key(step, unit));
+    }
+
+    /**
+     * @return the last key recorded with a unit committed before this run, or null if it was not
+     */
+    Long lastKey(String step, int unit) {
+        return done.get(key(step, unit));
+    }
+
+    /**
+     * @return the number of units committed before this run
+     */
+    int size() {
+        return done.size();
+    }
+
+    /**
+     * Checkpoints a unit in the transaction of {@code conn}; does nothing if the import keeps no checkpoints.
+     */
+    void record(Connection conn, String step, int unit, long lastKey, long records, long rows) throws SQLException {
+        if (enabled) {
+            insert(conn, step, unit, lastKey, records, rows);
+        }
+    }
+
+    private static void insert(Connection conn, String step, int unit, long lastKey, long records, long rows)
+            throws SQLException {
+        String sql = "INSERT INTO " + ImportSchema.STATE_TABLE
+                + " (Step, Unit, LastKey, Records, Rows) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, step);
+            stmt.setInt(2, unit);
+            stmt.setLong(3, lastKey);
+            stmt.setLong(4, records);
+            stmt.setLong(5, rows);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String key(String step, int unit) {
+        return step + '#' + unit;
+    }
+}
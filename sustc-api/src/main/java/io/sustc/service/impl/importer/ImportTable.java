@@ -0,0 +1,44 @@
+package io.sustc.service.impl.importer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The tables filled by the import, together with the tables their foreign keys point to.
+ * Constants are declared in a valid load order.
+ */
+public enum ImportTable {
+
+    USERS("users"),
+
+    RECIPES("recipes", USERS),
+
+    REVIEWS("reviews", RECIPES, USERS),
+
+    RECIPE_INGREDIENTS("recipe_ingredients", RECIPES),
+
+    REVIEW_LIKES("review_likes", REVIEWS, USERS),
+
+    USER_FOLLOWS("user_follows", USERS);
+
+    private final String tableName;
+
+    private final List<ImportTable> parents;
+
+    ImportTable(String tableName, ImportTable... parents) {
+        this.tableName = tableName;
+        this.parents = Collections.unmodifiableList(Arrays.asList(parents));
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the tables that must be loaded before this one while foreign keys are enforced
+     */
+    public List<ImportTable> getParents() {
+        return parents;
+    }
+}
@@ -0,0 +1,76 @@
+package io.sustc.service.impl.importer;
+
+/**
+ * Open-addressing set of {@code long} keys, without boxing.
+ */
+final class LongHashSet {
+
+    private long[] keys;
+
+    private boolean[] used;
+
+    private int size;
+
+    LongHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * @return whether {@code key} was not in the set before
+     */
+    boolean add(long key) {
+        int slot = slot(key);
+        if (used[slot]) {
+            return false;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            slot = slot(key);
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        size++;
+        return true;
+    }
+
+    boolean contains(long key) {
+        return used[slot(key)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot holding {@code key}, or the empty slot where it belongs
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        used = new boolean[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
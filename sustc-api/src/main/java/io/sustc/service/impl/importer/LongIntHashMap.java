@@ -0,0 +1,80 @@
+package io.sustc.service.impl.importer;
+
+/**
+ * Open-addressing map from {@code long} keys to {@code int} values, without boxing.
+ * Absent keys read as {@code 0}, so the map doubles as a counter.
+ */
+final class LongIntHashMap {
+
+    private long[] keys;
+
+    private int[] values;
+
+    private boolean[] used;
+
+    private int size;
+
+    LongIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    void add(long key, int delta) {
+        int slot = slot(key);
+        if (!used[slot]) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = slot(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] += delta;
+    }
+
+    int get(long key) {
+        int slot = slot(key);
+        return used[slot] ? values[slot] : 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot holding {@code key}, or the empty slot where it belongs
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        values = new int[keys.length];
+        used = new boolean[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
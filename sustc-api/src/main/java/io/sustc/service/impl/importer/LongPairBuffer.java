@@ -0,0 +1,82 @@
+package io.sustc.service.impl.importer;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of {@code (left, right)} long pairs kept in two primitive columns, for the rows of
+ * review_likes and user_follows. Adding a pair allocates nothing unless a column has to grow,
+ * and {@link #clear()} keeps the columns for reuse.
+ */
+final class LongPairBuffer {
+
+    private long[] left;
+
+    private long[] right;
+
+    private int size;
+
+    /**
+     * Sort space for {@link #addDistinct}, reused across calls.
+     */
+    private long[] scratch = new long[16];
+
+    LongPairBuffer(int capacity) {
+        left = new long[Math.max(capacity, 16)];
+        right = new long[left.length];
+    }
+
+    void add(long l, long r) {
+        if (size == left.length) {
+            left = Arrays.copyOf(left, size * 2);
+            right = Arrays.copyOf(right, size * 2);
+        }
+        left[size] = l;
+        right[size] = r;
+        size++;
+    }
+
+    /**
+     * Adds {@code (owner, target)} once for every distinct target, in ascending target order.
+     */
+    void addDistinct(long owner, long[] targets) {
+        if (targets != null) {
+            addDistinct(owner, targets, 0, targets.length);
+        }
+    }
+
+    /**
+     * Like {@link #addDistinct(long, long[])}, for the targets in {@code [from, to)} of {@code targets}.
+     */
+    void addDistinct(long owner, long[] targets, int from, int to) {
+        int n = to - from;
+        if (n <= 0) {
+            return;
+        }
+        if (scratch.length < n) {
+            scratch = new long[Math.max(n, scratch.length * 2)];
+        }
+        System.arraycopy(targets, from, scratch, 0, n);
+        Arrays.sort(scratch, 0, n);
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || scratch[i] != scratch[i - 1]) {
+                add(owner, scratch[i]);
+            }
+        }
+    }
+
+    long left(int i) {
+        return left[i];
+    }
+
+    long right(int i) {
+        return right[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,294 @@
+package io.sustc.service.impl.importer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Streams rows into one table through {@code COPY ... FROM STDIN (FORMAT binary)}.
+ * <p>
+ * Each row is started with {@link #startRow(int)} followed by exactly that many {@code write*} calls,
+ * in the column order given to the constructor. Field values are encoded straight into the
+ * <a href="https://www.postgresql.org/docs/16/sql-copy.html#id-1.9.3.55.9.4">binary tuple format</a>
+ * and shipped to the server in {@value #BUFFER_SIZE}-byte chunks.
+ * <p>
+ * The writer does not own the connection. Call {@link #endCopy()} to finish the stream;
+ * closing a writer that has not been ended cancels the copy.
+ */
+public final class PgBinaryCopyWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] HEADER = {
+            'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0,
+            0, 0, 0, 0, // flags
+            0, 0, 0, 0  // header extension length
+    };
+
+    /**
+     * Seconds between 1970-01-01 and 2000-01-01, the epoch of PostgreSQL timestamps.
+     */
+    private static final long PG_EPOCH_SECONDS = 946_684_800L;
+
+    /**
+     * {@code float4 -> numeric} casts go through {@code %.6g} on the server, i.e. {@code FLT_DIG} significant digits.
+     */
+    private static final MathContext FLOAT4_DIGITS = new MathContext(6, RoundingMode.HALF_EVEN);
+
+    private static final short NUMERIC_POS = 0x0000;
+
+    private static final short NUMERIC_NEG = 0x4000;
+
+    private static final short NUMERIC_NAN = (short) 0xC000;
+
+    private final CopyIn copyIn;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private long rows;
+
+    private long bytes;
+
+    private boolean ended;
+
+    public PgBinaryCopyWriter(Connection conn, String table, String... columns) throws SQLException {
+        String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT binary)";
+        this.copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        put(HEADER, 0, HEADER.length);
+    }
+
+    public void startRow(int fieldCount) throws SQLException {
+        ensure(2);
+        putShort((short) fieldCount);
+        rows++;
+    }
+
+    public void writeNull() throws SQLException {
+        ensure(4);
+        putInt(-1);
+    }
+
+    public void writeLong(long value) throws SQLException {
+        ensure(12);
+        putInt(8);
+        putLong(value);
+    }
+
+    public void writeInt(int value) throws SQLException {
+        ensure(8);
+        putInt(4);
+        putInt(value);
+    }
+
+    public void writeBoolean(boolean value) throws SQLException {
+        ensure(5);
+        putInt(1);
+        buffer[position++] = (byte) (value ? 1 : 0);
+    }
+
+    /**
+     * Writes a {@code text}/{@code varchar} field, or {@code NULL} if {@code value} is null.
+     */
+    public void writeText(String value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeText(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Writes a {@code text}/{@code varchar} field from {@code length} bytes of UTF-8 at {@code offset}.
+     */
+    public void writeText(byte[] utf8, int offset, int length) throws SQLException {
+        ensure(4);
+        putInt(length);
+        put(utf8, offset, length);
+    }
+
+    /**
+     * Writes a {@code timestamp without time zone} field holding the wall-clock time of {@code value},
+     * which is what {@link java.sql.PreparedStatement#setTimestamp} stores for such a column.
+     */
+    public void writeTimestamp(Timestamp value) throws SQLException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        LocalDateTime time = value.toLocalDateTime();
+        writeTimestamp(time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (time.getNano() + 500) / 1000);
+    }
+
+    /**
+     * Writes a {@code timestamp without time zone} field from the microseconds of its wall-clock time
+     * since 1970-01-01 00:00.
+     */
+    public void writeTimestamp(long micros) throws SQLException {
+        writeLong(micros - PG_EPOCH_SECONDS * 1_000_000L);
+    }
+
+    /**
+     * Writes a {@code numeric(p, scale)} field with the value the server would store for
+     * a {@code float4} parameter cast to that column type.
+     */
+    public void writeNumeric(float value, int scale) throws SQLException {
+        if (Float.isNaN(value)) {
+            ensure(12);
+            putInt(8);
+            putShort((short) 0);
+            putShort((short) 0);
+            putShort(NUMERIC_NAN);
+            putShort((short) 0);
+            return;
+        }
+        if (Float.isInfinite(value)) {
+            throw new IllegalArgumentException("infinite value cannot be stored as numeric");
+        }
+        writeNumeric(new BigDecimal(value).round(FLOAT4_DIGITS).setScale(scale, RoundingMode.HALF_UP));
+    }
+
+    private void writeNumeric(BigDecimal value) throws SQLException {
+        int scale = value.scale();
+        if (value.signum() == 0) {
+            ensure(12);
+            putInt(8);
+            putShort((short) 0);
+            putShort((short) 0);
+            putShort(NUMERIC_POS);
+            putShort((short) scale);
+            return;
+        }
+
+        // Lay the decimal digits out in base-10000 groups aligned on the decimal point.
+        String digits = value.unscaledValue().abs().toString();
+        int intLength = digits.length() - scale;
+        if (intLength < 0) {
+            digits = "0".repeat(-intLength) + digits;
+            intLength = 0;
+        }
+        int padLeft = (4 - intLength % 4) % 4;
+        int padRight = (4 - scale % 4) % 4;
+        String aligned = "0".repeat(padLeft) + digits + "0".repeat(padRight);
+
+        int groups = aligned.length() / 4;
+        int first = 0;
+        int last = groups - 1;
+        int weight = (intLength + padLeft) / 4 - 1;
+        while (first <= last && group(aligned, first) == 0) {
+            first++;
+            weight--;
+        }
+        while (last >= first && group(aligned, last) == 0) {
+            last--;
+        }
+
+        int ndigits = last - first + 1;
+        ensure(12 + 2 * ndigits);
+        putInt(8 + 2 * ndigits);
+        putShort((short) ndigits);
+        putShort((short) weight);
+        putShort(value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+        putShort((short) scale);
+        for (int i = first; i <= last; i++) {
+            putShort((short) group(aligned, i));
+        }
+    }
+
+    private static int group(String aligned, int index) {
+        return Integer.parseInt(aligned, index * 4, index * 4 + 4, 10);
+    }
+
+    /**
+     * Sends the trailer and completes the copy.
+     *
+     * @return the number of rows written
+     */
+    public long endCopy() throws SQLException {
+        ensure(2);
+        putShort((short) -1);
+        flush();
+        copyIn.endCopy();
+        ended = true;
+        return rows;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of bytes handed to the server so far
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        if (ended || !copyIn.isActive()) {
+            return;
+        }
+        try {
+            copyIn.cancelCopy();
+        } catch (SQLException e) {
+            // the original failure is more useful than the one from cancelling
+        }
+    }
+
+    private void ensure(int length) throws SQLException {
+        if (position + length > buffer.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (position > 0) {
+            copyIn.writeToCopy(buffer, 0, position);
+            bytes += position;
+            position = 0;
+        }
+    }
+
+    private void put(byte[] src, int offset, int length) throws SQLException {
+        if (length > buffer.length - position) {
+            flush();
+            if (length > buffer.length) {
+                copyIn.writeToCopy(src, offset, length);
+                bytes += length;
+                return;
+            }
+        }
+        System.arraycopy(src, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void putShort(short value) {
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+}
@@ -0,0 +1,89 @@
+package io.sustc.service.impl.importer;
+
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.UserColumns;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the rows of one import table on a given connection.
+ * Implementations never commit; transaction boundaries belong to the caller.
+ * Every method returns the number of rows written.
+ * Counter columns of users, recipes and reviews are filled from the given {@link ImportCounters}.
+ * <p>
+ * The overloads taking a block of columns load the same rows; by default they build the block's records
+ * and load those.
+ */
+public interface TableLoader {
+
+    long loadUsers(Connection conn, List<UserRecord> users, ImportCounters counters) throws SQLException;
+
+    long loadRecipes(Connection conn, List<RecipeRecord> recipes, ImportCounters counters) throws SQLException;
+
+    long loadReviews(Connection conn, List<ReviewRecord> reviews, ImportCounters counters) throws SQLException;
+
+    long loadRecipeIngredients(Connection conn, List<RecipeRecord> recipes) throws SQLException;
+
+    long loadReviewLikes(Connection conn, List<ReviewRecord> reviews) throws SQLException;
+
+    long loadUserFollows(Connection conn, List<UserRecord> users) throws SQLException;
+
+    default long loadUsers(Connection conn, UserColumns users, ImportCounters counters) throws SQLException {
+        return loadUsers(conn, users.records().collect(Collectors.toList()), counters);
+    }
+
+    default long loadRecipes(Connection conn, RecipeColumns recipes, ImportCounters counters) throws SQLException {
+        return loadRecipes(conn, recipes.records().collect(Collectors.toList()), counters);
+    }
+
+    default long loadReviews(Connection conn, ReviewColumns reviews, ImportCounters counters) throws SQLException {
+        return loadReviews(conn, reviews.records().collect(Collectors.toList()), counters);
+    }
+
+    default long loadRecipeIngredients(Connection conn, RecipeColumns recipes) throws SQLException {
+        return loadRecipeIngredients(conn, recipes.records().collect(Collectors.toList()));
+    }
+
+    default long loadReviewLikes(Connection conn, ReviewColumns reviews) throws SQLException {
+        return loadReviewLikes(conn, reviews.records().collect(Collectors.toList()));
+    }
+
+    default long loadUserFollows(Connection conn, UserColumns users) throws SQLException {
+        return loadUserFollows(conn, users.records().collect(Collectors.toList()));
+    }
+
+    default long load(ImportTable table, Connection conn, ImportData data) throws SQLException {
+        if (data.getUserColumns() != null || data.getRecipeColumns() != null || data.getReviewColumns() != null) {
+            return loadColumns(table, conn, data);
+        }
+        return switch (table) {
+            case USERS -> loadUsers(conn, data.getUsers(), data.getCounters());
+            case RECIPES -> loadRecipes(conn, data.getRecipes(), data.getCounters());
+            case REVIEWS -> loadReviews(conn, data.getReviews(), data.getCounters());
+            case RECIPE_INGREDIENTS -> loadRecipeIngredients(conn, data.getRecipes());
+            case REVIEW_LIKES -> loadReviewLikes(conn, data.getReviews());
+            case USER_FOLLOWS -> loadUserFollows(conn, data.getUsers());
+        };
+    }
+
+    private long loadColumns(ImportTable table, Connection conn, ImportData data) throws SQLException {
+        return switch (table) {
+            case USERS -> data.getUserColumns() == null ? 0 : loadUsers(conn, data.getUserColumns(), data.getCounters());
+            case RECIPES -> data.getRecipeColumns() == null ? 0
+                    : loadRecipes(conn, data.getRecipeColumns(), data.getCounters());
+            case REVIEWS -> data.getReviewColumns() == null ? 0
+                    : loadReviews(conn, data.getReviewColumns(), data.getCounters());
+            case RECIPE_INGREDIENTS -> data.getRecipeColumns() == null ? 0
+                    : loadRecipeIngredients(conn, data.getRecipeColumns());
+            case REVIEW_LIKES -> data.getReviewColumns() == null ? 0 : loadReviewLikes(conn, data.getReviewColumns());
+            case USER_FOLLOWS -> data.getUserColumns() == null ? 0 : loadUserFollows(conn, data.getUserColumns());
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package io.sustc.service.impl.importer;
+
+import lombok.Data;
+
+/**
+ * How long loading one import table took.
+ */
+@Data
+public class TableStats {
+
+    private final ImportTable table;
+
+    private final long rows;
+
+    /**
+     * Number of key-range shards the table was split into.
+     */
+    private final int shards;
+
+    private final long elapsedMillis;
+
+    public long getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows * 1000 : rows * 1000 / elapsedMillis;
+    }
+}
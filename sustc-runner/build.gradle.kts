@@ -6,6 +6,7 @@ plugins {
     alias(libs.plugins.spring.boot)
     alias(libs.plugins.spring.dependencyManagement)
     alias(libs.plugins.lombok)
+    alias(libs.plugins.jmh)
 }
 
 dependencies {
@@ -31,6 +32,10 @@ dependencies {
     implementation("org.springdoc:springdoc-openapi-ui:1.7.0")
 }
 
+jmh {
+    profilers.add("gc")
+}
+
 tasks.withType<JavaExec> {
     standardInput = System.`in`
 }
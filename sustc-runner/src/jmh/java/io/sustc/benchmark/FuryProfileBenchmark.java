@@ -0,0 +1,155 @@
+package io.sustc.benchmark;
+
+import io.fury.ThreadSafeFury;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode time of one {@link FuryBlockFile} block of records in the compatible profile the import files
+ * used to be written with, and in the records profile they are written with now. Run with
+ * {@code ./gradlew :sustc-runner:jmh}; the serialized size of the block in each profile is printed once
+ * per trial.
+ * <p>
+ * The records are generated in the shapes of the data set: names, timestamps, R vectors of ingredient
+ * parts and lists of user ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FuryProfileBenchmark {
+
+    @Param({"users", "recipes", "reviews"})
+    private String records;
+
+    private final ThreadSafeFury compatible = FuryProfiles.compatible();
+
+    private byte[] compatibleBlock;
+
+    private byte[] recordsBlock;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Object> block = new ArrayList<>(FuryBlockFile.DEFAULT_BLOCK_SIZE);
+        for (int i = 0; i < FuryBlockFile.DEFAULT_BLOCK_SIZE; i++) {
+            block.add(switch (records) {
+                case "users" -> user(random, i);
+                case "recipes" -> recipe(random, i);
+                case "reviews" -> review(random, i);
+                default -> throw new IllegalArgumentException(records);
+            });
+        }
+        compatibleBlock = compatible.serialize(block);
+        recordsBlock = FuryProfiles.records().serialize(block);
+        System.out.printf("%n%d %s: compatible %d bytes, records %d bytes%n",
+                block.size(), records, compatibleBlock.length, recordsBlock.length);
+    }
+
+    @Benchmark
+    public Object decodeCompatible() {
+        return compatible.deserialize(compatibleBlock);
+    }
+
+    @Benchmark
+    public Object decodeRecords() {
+        return FuryProfiles.records().deserialize(recordsBlock);
+    }
+
+    private static UserRecord user(Random random, int i) {
+        return UserRecord.builder()
+                .authorId(1533 + i)
+                .authorName(name(random))
+                .gender(random.nextBoolean() ? "Male" : "Female")
+                .age(18 + random.nextInt(60))
+                .followers(random.nextInt(1000))
+                .following(random.nextInt(1000))
+                .followerUsers(ids(random))
+                .followingUsers(ids(random))
+                .password(Long.toHexString(random.nextLong()))
+                .build();
+    }
+
+    private static RecipeRecord recipe(Random random, int i) {
+        String[] parts = new String[3 + random.nextInt(10)];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = "ingredient " + random.nextInt(5000);
+        }
+        return RecipeRecord.builder()
+                .RecipeId(38 + i)
+                .name(name(random))
+                .authorId(random.nextInt(2_000_000))
+                .authorName(name(random))
+                .cookTime("PT" + random.nextInt(120) + "M")
+                .prepTime("PT" + random.nextInt(60) + "M")
+                .totalTime("PT" + random.nextInt(180) + "M")
+                .datePublished(timestamp(random))
+                .description("A recipe for " + name(random) + " that serves the whole family.")
+                .recipeCategory("Dessert")
+                .recipeIngredientParts(parts)
+                .aggregatedRating(random.nextInt(50) / 10.0f)
+                .reviewCount(random.nextInt(300))
+                .calories(random.nextInt(20000) / 10.0f)
+                .fatContent(random.nextInt(1000) / 10.0f)
+                .saturatedFatContent(random.nextInt(500) / 10.0f)
+                .cholesterolContent(random.nextInt(3000) / 10.0f)
+                .sodiumContent(random.nextInt(30000) / 10.0f)
+                .carbohydrateContent(random.nextInt(2000) / 10.0f)
+                .fiberContent(random.nextInt(300) / 10.0f)
+                .sugarContent(random.nextInt(1000) / 10.0f)
+                .proteinContent(random.nextInt(800) / 10.0f)
+                .recipeServings(random.nextInt(12))
+                .recipeYield(random.nextInt(24) + " cookies")
+                .build();
+    }
+
+    private static ReviewRecord review(Random random, int i) {
+        return ReviewRecord.builder()
+                .reviewId(2 + i)
+                .recipeId(random.nextInt(500_000))
+                .authorId(random.nextInt(2_000_000))
+                .authorName(name(random))
+                .rating(random.nextInt(6))
+                .review("Tasty, would make again. " + name(random))
+                .dateSubmitted(timestamp(random))
+                .dateModified(timestamp(random))
+                .likes(ids(random))
+                .build();
+    }
+
+    private static String name(Random random) {
+        return "name " + random.nextInt(100_000);
+    }
+
+    private static Timestamp timestamp(Random random) {
+        return new Timestamp(915_148_800_000L + (long) (random.nextDouble() * 700_000_000_000L));
+    }
+
+    private static long[] ids(Random random) {
+        long[] ids = new long[random.nextInt(20)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextInt(2_000_000);
+        }
+        return ids;
+    }
+}
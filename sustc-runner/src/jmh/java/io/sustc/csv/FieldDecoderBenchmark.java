@@ -0,0 +1,171 @@
+package io.sustc.csv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of decoding the fields of recipes.csv, reviews.csv and users.csv, with {@link FieldDecoder}
+ * and with the parsing it replaced. Run with {@code ./gradlew :sustc-runner:jmh}; the gc profiler reports
+ * the bytes allocated per row.
+ * <p>
+ * The rows are generated in the shapes of the data set: ISO timestamps with {@code T} and {@code Z},
+ * ratings and nutrition values with one decimal, R vectors of ingredient parts and parenthesized
+ * lists of user ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldDecoderBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private String[][] recipes;
+
+    private String[][] reviews;
+
+    private String[][] users;
+
+    private int row;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        recipes = new String[ROWS][];
+        reviews = new String[ROWS][];
+        users = new String[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            recipes[i] = new String[] {
+                    Integer.toString(38 + i), timestamp(random), vector(random), decimal(random, 5),
+                    Integer.toString(random.nextInt(300)), decimal(random, 2000), decimal(random, 100),
+                    decimal(random, 50), decimal(random, 300), decimal(random, 3000), decimal(random, 200),
+                    decimal(random, 30), decimal(random, 100), decimal(random, 80), Integer.toString(random.nextInt(12))
+            };
+            reviews[i] = new String[] {
+                    Integer.toString(2 + i), Integer.toString(random.nextInt(500_000)),
+                    Integer.toString(random.nextInt(2_000_000)), Integer.toString(random.nextInt(6)),
+                    timestamp(random), timestamp(random), ids(random)
+            };
+            users[i] = new String[] {
+                    Integer.toString(1533 + i), Integer.toString(18 + random.nextInt(60)),
+                    Integer.toString(random.nextInt(1000)), Integer.toString(random.nextInt(1000)),
+                    ids(random), ids(random)
+            };
+        }
+    }
+
+    @Benchmark
+    public void recipeRowLegacy(Blackhole bh) {
+        String[] f = recipes[next()];
+        bh.consume(LegacyFieldDecoder.parseLong(f[0]));
+        bh.consume(LegacyFieldDecoder.parseTimestamp(f[1]));
+        bh.consume(LegacyFieldDecoder.parseCsvList(f[2]));
+        for (int i = 3; i < f.length; i++) {
+            bh.consume(LegacyFieldDecoder.parseFloat(f[i]));
+        }
+    }
+
+    @Benchmark
+    public void recipeRow(Blackhole bh) {
+        String[] f = recipes[next()];
+        bh.consume(FieldDecoder.parseLong(f[0]));
+        bh.consume(FieldDecoder.parseTimestamp(f[1]));
+        bh.consume(FieldDecoder.parseStringList(f[2]));
+        for (int i = 3; i < f.length; i++) {
+            bh.consume(FieldDecoder.parseFloat(f[i]));
+        }
+    }
+
+    @Benchmark
+    public void reviewRowLegacy(Blackhole bh) {
+        String[] f = reviews[next()];
+        bh.consume(LegacyFieldDecoder.parseLong(f[0]));
+        bh.consume(LegacyFieldDecoder.parseLong(f[1]));
+        bh.consume(LegacyFieldDecoder.parseLong(f[2]));
+        bh.consume(LegacyFieldDecoder.parseFloat(f[3]));
+        bh.consume(LegacyFieldDecoder.parseTimestamp(f[4]));
+        bh.consume(LegacyFieldDecoder.parseTimestamp(f[5]));
+        bh.consume(LegacyFieldDecoder.parseCsvLongList(f[6]));
+    }
+
+    @Benchmark
+    public void reviewRow(Blackhole bh) {
+        String[] f = reviews[next()];
+        bh.consume(FieldDecoder.parseLong(f[0]));
+        bh.consume(FieldDecoder.parseLong(f[1]));
+        bh.consume(FieldDecoder.parseLong(f[2]));
+        bh.consume(FieldDecoder.parseFloat(f[3]));
+        bh.consume(FieldDecoder.parseTimestamp(f[4]));
+        bh.consume(FieldDecoder.parseTimestamp(f[5]));
+        bh.consume(FieldDecoder.parseLongList(f[6]));
+    }
+
+    @Benchmark
+    public void userRowLegacy(Blackhole bh) {
+        String[] f = users[next()];
+        bh.consume(LegacyFieldDecoder.parseLong(f[0]));
+        bh.consume(LegacyFieldDecoder.parseInt(f[1]));
+        bh.consume(LegacyFieldDecoder.parseInt(f[2]));
+        bh.consume(LegacyFieldDecoder.parseInt(f[3]));
+        bh.consume(LegacyFieldDecoder.parseCsvLongList(f[4]));
+        bh.consume(LegacyFieldDecoder.parseCsvLongList(f[5]));
+    }
+
+    @Benchmark
+    public void userRow(Blackhole bh) {
+        String[] f = users[next()];
+        bh.consume(FieldDecoder.parseLong(f[0]));
+        bh.consume(FieldDecoder.parseInt(f[1]));
+        bh.consume(FieldDecoder.parseInt(f[2]));
+        bh.consume(FieldDecoder.parseInt(f[3]));
+        bh.consume(FieldDecoder.parseLongList(f[4]));
+        bh.consume(FieldDecoder.parseLongList(f[5]));
+    }
+
+    private int next() {
+        row = (row + 1) & (ROWS - 1);
+        return row;
+    }
+
+    private static String timestamp(Random random) {
+        return String.format("%d-%02d-%02dT%02d:%02d:%02dZ", 1999 + random.nextInt(22), 1 + random.nextInt(12),
+                1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+    }
+
+    private static String decimal(Random random, int max) {
+        return String.format(Locale.ROOT, "%.1f", random.nextDouble() * max);
+    }
+
+    private static String vector(Random random) {
+        StringBuilder sb = new StringBuilder("c(");
+        int parts = 3 + random.nextInt(10);
+        for (int i = 0; i < parts; i++) {
+            sb.append(i == 0 ? "\"" : ", \"").append("ingredient ").append(random.nextInt(5000)).append('"');
+        }
+        return sb.append(')').toString();
+    }
+
+    private static String ids(Random random) {
+        StringBuilder sb = new StringBuilder("(");
+        int count = random.nextInt(20);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "" : ", ").append(random.nextInt(2_000_000));
+        }
+        return sb.append(')').toString();
+    }
+}
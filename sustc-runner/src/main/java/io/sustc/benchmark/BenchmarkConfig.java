@@ -1,10 +1,7 @@
 package io.sustc.benchmark;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.fury.Fury;
 import io.fury.ThreadSafeFury;
-import io.fury.config.CompatibleMode;
-import io.fury.config.Language;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -36,13 +33,7 @@ public class BenchmarkConfig {
 
     @Bean
     ThreadSafeFury fury() {
-        return Fury.builder()
-                .requireClassRegistration(false)
-                .withLanguage(Language.JAVA)
-                .withRefTracking(true)
-                .withCompatibleMode(CompatibleMode.COMPATIBLE)
-                .withAsyncCompilation(true)
-                .buildThreadSafeFury();
+        return FuryProfiles.compatible();
     }
 
     @Bean
@@ -15,6 +15,12 @@ public final class BenchmarkConstants {
 
     public static final String RECIPE_RECORDS = "recipes.ser";
 
+    public static final String REVIEW_COLUMNS = "reviews.cols";
+
+    public static final String USER_COLUMNS = "users.cols";
+
+    public static final String RECIPE_COLUMNS = "recipes.cols";
+
     public static final String TEST_DATA = "test";
 
     public static final String RECIPE_NAME = "recipe_name.ser";
@@ -1,5 +1,7 @@
 package io.sustc.benchmark;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.sustc.dto.ImportReport;
 import lombok.Data;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -17,6 +19,12 @@ public class BenchmarkResult {
 
     private Long elapsedTime;
 
+    /**
+     * Phases of the import step, as reported by {@link io.sustc.service.DatabaseService#getImportReport()}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ImportReport importReport;
+
     public BenchmarkResult(Long elapsedTime) {
         this.elapsedTime = elapsedTime;
     }
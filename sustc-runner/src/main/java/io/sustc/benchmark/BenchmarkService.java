@@ -9,12 +9,12 @@ import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -55,19 +55,23 @@ public class BenchmarkService {
 
     @BenchmarkStep(order = 1, timeout = 35, description = "Import data")
     public BenchmarkResult importData() {
-        List<ReviewRecord> reviewRecords = deserialize(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.REVIEW_RECORDS);
-        List<UserRecord> userRecords = deserialize(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.USER_RECORDS);
-        List<RecipeRecord> recipeRecords = deserialize(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.RECIPE_RECORDS);
+        // Opened before the clock starts, like the lists deserialized before: a single-blob file is decoded
+        // whole when opened, a block file only reads its index and decodes its blocks while earlier ones load
+        try (Stream<ReviewRecord> reviewRecords = stream(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.REVIEW_RECORDS);
+             Stream<UserRecord> userRecords = stream(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.USER_RECORDS);
+             Stream<RecipeRecord> recipeRecords = stream(BenchmarkConstants.IMPORT_DATA, BenchmarkConstants.RECIPE_RECORDS)) {
+            val startTime = System.currentTimeMillis();
+            try {
+                databaseService.importData(reviewRecords, userRecords, recipeRecords);
+            } catch (Exception e) {
+                log.error("Exception encountered during importing data, you may early stop this run", e);
+            }
+            val endTime = System.currentTimeMillis();
 
-        val startTime = System.currentTimeMillis();
-        try {
-            databaseService.importData(reviewRecords, userRecords, recipeRecords);
-        } catch (Exception e) {
-            log.error("Exception encountered during importing data, you may early stop this run", e);
+            val result = new BenchmarkResult(endTime - startTime);
+            result.setImportReport(databaseService.getImportReport());
+            return result;
         }
-        val endTime = System.currentTimeMillis();
-
-        return new BenchmarkResult(endTime - startTime);
     }
 
     @BenchmarkStep(order = 2, description = "Test RecipeService#getRecipeNameFromID(Long)")
@@ -765,7 +769,12 @@ public class BenchmarkService {
     @SuppressWarnings("unchecked")
     private <T> T deserialize(String... path) {
         val file = Paths.get(config.getDataPath(), path);
-        return (T) fury.deserialize(Files.readAllBytes(file));
+        return FuryBlockFile.readList(fury, file);
+    }
+
+    @SneakyThrows
+    private <T> Stream<T> stream(String... path) {
+        return FuryBlockFile.stream(fury, Paths.get(config.getDataPath(), path));
     }
 
     private static boolean collectionEquals(Collection<?> expect, Collection<?> actual) {
@@ -0,0 +1,287 @@
+package io.sustc.benchmark;
+
+import io.fury.ThreadSafeFury;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A list of records stored as independently Fury-serialized blocks, so that it can be written from a stream
+ * and read back block by block, in parallel or lazily, without ever holding the whole file in a {@code byte[]}.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header   magic "SUSTCFB2"
+ * blocks   one Fury-serialized List of up to blockSize records each
+ * index    per block: offset (long), length (int), records (int), profile (byte)
+ * trailer  index offset (long), blocks (int), records (long), magic "SUSTCFB2"
+ * </pre>
+ * A block of {@code io.sustc.dto} records is written with {@link FuryProfiles#records()}, any other block
+ * with the Fury passed in, which also reads them back; the profile byte tells which. Version 1 files, magic
+ * {@code "SUSTCFB1"}, have no profile byte and only blocks of the passed Fury.
+ * <p>
+ * Blocks are decoded straight from a memory-mapped view of the file. Files written by a plain
+ * {@code fury.serialize} of the whole list, like the test data, are still read by {@link #readList}.
+ */
+public final class FuryBlockFile<T> implements Closeable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 10_000;
+
+    private static final byte[] MAGIC_V1 = {'S', 'U', 'S', 'T', 'C', 'F', 'B', '1'};
+
+    private static final byte[] MAGIC = {'S', 'U', 'S', 'T', 'C', 'F', 'B', '2'};
+
+    private static final int INDEX_ENTRY_V1 = Long.BYTES + 2 * Integer.BYTES;
+
+    private static final int INDEX_ENTRY = INDEX_ENTRY_V1 + 1;
+
+    private static final int TRAILER = Long.BYTES + Integer.BYTES + Long.BYTES + MAGIC.length;
+
+    private static final byte PROFILE_PASSED = 0;
+
+    private static final byte PROFILE_RECORDS = 1;
+
+    private final ThreadSafeFury fury;
+
+    private final FileChannel channel;
+
+    private final long[] offsets;
+
+    private final int[] lengths;
+
+    private final int[] counts;
+
+    private final byte[] profiles;
+
+    private final long records;
+
+    private FuryBlockFile(ThreadSafeFury fury, FileChannel channel, long[] offsets, int[] lengths, int[] counts,
+                          byte[] profiles, long records) {
+        this.fury = fury;
+        this.channel = channel;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.counts = counts;
+        this.profiles = profiles;
+        this.records = records;
+    }
+
+    /**
+     * Writes {@code records} to {@code file} in blocks of {@code blockSize}, pulling them from the stream one
+     * block at a time.
+     *
+     * @param fury writes the blocks that are not all {@code io.sustc.dto} records
+     * @return the number of records written
+     */
+    public static long write(ThreadSafeFury fury, Path file, Stream<?> records, int blockSize) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, ByteBuffer.wrap(MAGIC));
+            long position = MAGIC.length;
+
+            List<long[]> index = new ArrayList<>();
+            long total = 0;
+            List<Object> block = new ArrayList<>(blockSize);
+            Iterator<?> it = records.iterator();
+            while (it.hasNext()) {
+                block.add(it.next());
+                if (block.size() == blockSize || !it.hasNext()) {
+                    byte profile = FuryProfiles.isRecordList(block) ? PROFILE_RECORDS : PROFILE_PASSED;
+                    byte[] bytes = fury(fury, profile).serialize(block);
+                    writeFully(out, ByteBuffer.wrap(bytes));
+                    index.add(new long[] {position, bytes.length, block.size(), profile});
+                    position += bytes.length;
+                    total += block.size();
+                    block.clear();
+                }
+            }
+
+            ByteBuffer tail = ByteBuffer.allocate(index.size() * INDEX_ENTRY + TRAILER);
+            for (long[] entry : index) {
+                tail.putLong(entry[0]).putInt((int) entry[1]).putInt((int) entry[2]).put((byte) entry[3]);
+            }
+            tail.putLong(position).putInt(index.size()).putLong(total).put(MAGIC);
+            tail.flip();
+            writeFully(out, tail);
+            return total;
+        }
+    }
+
+    /**
+     * Opens a file written by {@link #write}, of either version, reading only its index.
+     */
+    public static <T> FuryBlockFile<T> open(ThreadSafeFury fury, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            int version = version(channel, 0);
+            if (version == 0 || size < MAGIC.length + TRAILER || version(channel, size - MAGIC.length) != version) {
+                throw new IOException(file + " is not a block file");
+            }
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - TRAILER, TRAILER);
+            long indexOffset = trailer.getLong();
+            int blocks = trailer.getInt();
+            long records = trailer.getLong();
+
+            int entry = version == 1 ? INDEX_ENTRY_V1 : INDEX_ENTRY;
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) blocks * entry);
+            long[] offsets = new long[blocks];
+            int[] lengths = new int[blocks];
+            int[] counts = new int[blocks];
+            byte[] profiles = new byte[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = index.getLong();
+                lengths[i] = index.getInt();
+                counts[i] = index.getInt();
+                profiles[i] = version == 1 ? PROFILE_PASSED : index.get();
+            }
+            return new FuryBlockFile<>(fury, channel, offsets, lengths, counts, profiles, records);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Whether {@code file} starts like a block file.
+     */
+    public static boolean isBlockFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.size() >= MAGIC.length && version(channel, 0) != 0;
+        }
+    }
+
+    /**
+     * Reads the whole object in {@code file}: a block file's records, decoded in parallel, or whatever a plain
+     * Fury file holds, decoded from a memory-mapped view instead of a copy on the heap.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T readList(ThreadSafeFury fury, Path file) throws IOException {
+        if (isBlockFile(file)) {
+            try (FuryBlockFile<Object> blocks = open(fury, file)) {
+                return (T) blocks.readAll();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return (T) fury.deserialize(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Streams the records of {@code file}, a block at a time for a block file. Closing the stream closes
+     * the file.
+     */
+    public static <T> Stream<T> stream(ThreadSafeFury fury, Path file) throws IOException {
+        if (!isBlockFile(file)) {
+            List<T> records = readList(fury, file);
+            return records.stream();
+        }
+        FuryBlockFile<T> blocks = open(fury, file);
+        return blocks.stream().onClose(() -> {
+            try {
+                blocks.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public int blocks() {
+        return offsets.length;
+    }
+
+    public long records() {
+        return records;
+    }
+
+    public int records(int block) {
+        return counts[block];
+    }
+
+    /**
+     * Decodes block {@code i}; safe to call from several threads at once.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> block(int i) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]);
+            return (List<T>) fury(fury, profiles[i]).deserialize(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes all blocks on the common fork-join pool.
+     *
+     * @return the records in file order
+     */
+    public List<T> readAll() {
+        List<ForkJoinTask<List<T>>> tasks = new ArrayList<>(blocks());
+        for (int i = 0; i < blocks(); i++) {
+            int block = i;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> block(block)));
+        }
+        List<T> all = new ArrayList<>((int) Math.min(records, Integer.MAX_VALUE - 8));
+        for (ForkJoinTask<List<T>> task : tasks) {
+            all.addAll(task.join());
+        }
+        return all;
+    }
+
+    /**
+     * Streams the records, decoding a block only when the stream reaches it.
+     */
+    public Stream<T> stream() {
+        return IntStream.range(0, blocks()).mapToObj(this::block).flatMap(List::stream);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ThreadSafeFury fury(ThreadSafeFury passed, byte profile) throws IOException {
+        return switch (profile) {
+            case PROFILE_PASSED -> passed;
+            case PROFILE_RECORDS -> FuryProfiles.records();
+            default -> throw new IOException("unknown Fury profile " + profile);
+        };
+    }
+
+    /**
+     * @return the format version of the magic at {@code position}, or 0 if there is none
+     */
+    private static int version(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return 0;
+            }
+        }
+        if (Arrays.equals(buffer.array(), MAGIC)) {
+            return 2;
+        }
+        return Arrays.equals(buffer.array(), MAGIC_V1) ? 1 : 0;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.sustc.benchmark;
+
+import io.fury.Fury;
+import io.fury.ThreadLocalFury;
+import io.fury.ThreadSafeFury;
+import io.fury.config.CompatibleMode;
+import io.fury.config.Language;
+import io.sustc.dto.AuthInfo;
+import io.sustc.dto.FeedItem;
+import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.RegisterUserReq;
+import io.sustc.dto.ReviewRecord;
+import io.sustc.dto.UserRecord;
+import io.sustc.dto.column.DictionaryColumn;
+import io.sustc.dto.column.LongListColumn;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.TextColumn;
+import io.sustc.dto.column.TextListColumn;
+import io.sustc.dto.column.TimestampColumn;
+import io.sustc.dto.column.UserColumns;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The Fury configurations the data files are written with.
+ * <p>
+ * {@link #compatible()} reads anything: it tracks references, writes class names and field metadata, and
+ * accepts unregistered classes. The test data and the original import files are in this format.
+ * <p>
+ * {@link #records()} is for lists of the {@code io.sustc.dto} classes and their column blocks only. They are
+ * registered up front, so a class is written as a small id instead of its name; they hold no shared or
+ * cyclic references, so reference tracking is off; and a file is read by the same classes that wrote it,
+ * so no field metadata is written either. A file in this profile is only readable by a build with the same fields in the same
+ * classes, which is why {@link FuryBlockFile} records the profile of every block.
+ */
+public final class FuryProfiles {
+
+    /**
+     * The classes of the records profile, in registration order. The ids Fury assigns follow this order:
+     * append new classes at the end and never reorder or remove one, or existing files decode wrongly.
+     */
+    private static final List<Class<?>> RECORD_CLASSES = List.of(
+            UserRecord.class,
+            RecipeRecord.class,
+            ReviewRecord.class,
+            AuthInfo.class,
+            RegisterUserReq.class,
+            RegisterUserReq.Gender.class,
+            FeedItem.class,
+            UserColumns.class,
+            RecipeColumns.class,
+            ReviewColumns.class,
+            TextColumn.class,
+            TextListColumn.class,
+            DictionaryColumn.class,
+            LongListColumn.class,
+            TimestampColumn.class
+    );
+
+    private static final Set<Class<?>> RECORD_CLASS_SET = Set.copyOf(RECORD_CLASSES);
+
+    private static final ThreadSafeFury RECORDS = new ThreadLocalFury(loader -> {
+        Fury fury = Fury.builder()
+                .withClassLoader(loader)
+                .withLanguage(Language.JAVA)
+                .requireClassRegistration(true)
+                .withRefTracking(false)
+                .withCompatibleMode(CompatibleMode.SCHEMA_CONSISTENT)
+                .build();
+        RECORD_CLASSES.forEach(fury::register);
+        return fury;
+    });
+
+    private FuryProfiles() {
+    }
+
+    /**
+     * A new instance of the general-purpose profile.
+     */
+    public static ThreadSafeFury compatible() {
+        return Fury.builder()
+                .requireClassRegistration(false)
+                .withLanguage(Language.JAVA)
+                .withRefTracking(true)
+                .withCompatibleMode(CompatibleMode.COMPATIBLE)
+                .withAsyncCompilation(true)
+                .buildThreadSafeFury();
+    }
+
+    /**
+     * The shared instance of the records profile.
+     */
+    public static ThreadSafeFury records() {
+        return RECORDS;
+    }
+
+    /**
+     * Whether {@link #records()} can write {@code records}: a list of registered classes, without nulls.
+     */
+    public static boolean isRecordList(List<?> records) {
+        for (Object record : records) {
+            if (record == null || !RECORD_CLASS_SET.contains(record.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,8 +4,15 @@ import com.opencsv.CSVReaderBuilder;
 import com.opencsv.RFC4180ParserBuilder;
 import io.fury.ThreadSafeFury;
 import io.sustc.benchmark.BenchmarkConfig;
+import io.sustc.benchmark.BenchmarkConstants;
 import io.sustc.benchmark.BenchmarkService;
+import io.sustc.benchmark.FuryBlockFile;
+import io.sustc.csv.FieldDecoder;
+import io.sustc.csv.ParallelCsvParser;
 import io.sustc.dto.*;
+import io.sustc.dto.column.RecipeColumns;
+import io.sustc.dto.column.ReviewColumns;
+import io.sustc.dto.column.UserColumns;
 import io.sustc.service.DatabaseService;
 import io.sustc.service.RecipeService;
 import io.sustc.service.ReviewService;
@@ -16,23 +23,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
 import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
-import java.sql.Timestamp;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 //在Spring Shell应用中Java类需要使用注解@ShellComponent来修饰，
 //类中的方法使用注解@ShellMethod表示为一个具体的命令。
@@ -41,6 +51,15 @@ import java.util.List;
 @ConditionalOnBean(DatabaseService.class)
 public class DatabaseCommand {
 
+    /**
+     * Fewest fields of a usable row in users.csv, recipes.csv and reviews.csv.
+     */
+    private static final int USER_FIELDS = 9;
+
+    private static final int RECIPE_FIELDS = 24;
+
+    private static final int REVIEW_FIELDS = 9;
+
     @Autowired
     private DatabaseService databaseService;
 
@@ -68,16 +87,76 @@ public class DatabaseCommand {
     }
 
     @ShellMethod(key = "db import", value = "Drop all the tables. Then import data from csv")
-    public void importData() {
+    public void importData(
+            @ShellOption(defaultValue = "false") boolean stream,
+            @ShellOption(defaultValue = "false") boolean columnar,
+            @ShellOption(defaultValue = "false") boolean stats) throws IOException {
         long startTime = System.currentTimeMillis();
 
         databaseService.drop();
-        benchmarkService.importData();
+        if (columnar) {
+            // 读取 csv2ser --columnar 生成的列式文件, 按列块直接导入, 不构造记录对象
+            try (Stream<UserColumns> users = FuryBlockFile.stream(fury, importFile(BenchmarkConstants.USER_COLUMNS));
+                 Stream<RecipeColumns> recipes = FuryBlockFile.stream(fury, importFile(BenchmarkConstants.RECIPE_COLUMNS));
+                 Stream<ReviewColumns> reviews = FuryBlockFile.stream(fury, importFile(BenchmarkConstants.REVIEW_COLUMNS))) {
+                databaseService.importColumns(reviews, users, recipes);
+            }
+        } else if (stream) {
+            // 按块解码 .ser 文件, 边解码边导入
+            try (Stream<UserRecord> users = FuryBlockFile.stream(fury, importFile(BenchmarkConstants.USER_RECORDS));
+                 Stream<RecipeRecord> recipes = FuryBlockFile.stream(fury, importFile(BenchmarkConstants.RECIPE_RECORDS));
+                 Stream<ReviewRecord> reviews = FuryBlockFile.stream(fury, importFile(BenchmarkConstants.REVIEW_RECORDS))) {
+                databaseService.importData(reviews, users, recipes);
+            }
+        } else {
+            benchmarkService.importData();
+        }
 
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
 
         System.out.println("importData time: " + duration + " ms");
+        if (stats) {
+            printReport(databaseService.getImportReport());
+        }
+    }
+
+    @ShellMethod(key = "db csvimport", value = "Drop all the tables. Then stream csv files straight into the database")
+    public void importCsv(@ShellOption(defaultValue = "data/csv") String path) throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        databaseService.drop();
+        // 逐行读取, 不经过 .ser 文件; 记录按块写入 COPY 流, 链接表的行在写入时展开
+        try (Stream<UserRecord> users = streamIfExists(Paths.get(path, "users.csv"), DatabaseCommand::streamUsers);
+             Stream<RecipeRecord> recipes = streamIfExists(Paths.get(path, "recipes.csv"), DatabaseCommand::streamRecipes);
+             Stream<ReviewRecord> reviews = streamIfExists(Paths.get(path, "reviews.csv"), DatabaseCommand::streamReviews)) {
+            databaseService.importData(reviews, users, recipes);
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println("importCsv time: " + duration + " ms");
+    }
+
+    @ShellMethod(key = "db delta", value = "Upsert new or changed records from csv files, keeping the other data")
+    public void importDelta(
+            @ShellOption(defaultValue = ShellOption.NULL) String users,
+            @ShellOption(defaultValue = ShellOption.NULL) String recipes,
+            @ShellOption(defaultValue = ShellOption.NULL) String reviews) throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        List<UserRecord> userRecords = users == null ? List.of() : loadUsers(users);
+        List<RecipeRecord> recipeRecords = recipes == null ? List.of() : loadRecipes(recipes);
+        List<ReviewRecord> reviewRecords = reviews == null ? List.of() : loadReviews(reviews);
+        databaseService.importDelta(reviewRecords, userRecords, recipeRecords);
+
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println("importDelta: " + userRecords.size() + " users, " + recipeRecords.size() + " recipes, "
+                + reviewRecords.size() + " reviews in " + duration + " ms");
+    }
+
+    @ShellMethod(key = "db indexes", value = "Report unused, missing and unmanaged indexes, and tables still read in full")
+    public void indexes() {
+        printIndexReport(databaseService.getIndexReport());
     }
 
     @ShellMethod(key = "db drop", value = "Drop all the tables")
@@ -90,275 +169,281 @@ public class DatabaseCommand {
         return databaseService.sum(a, b);
     }
 
-    @ShellMethod(key = "db csv2ser", value = "Generate .ser files from .csv files")
-    public void csv2ser() {
+    @ShellMethod(key = "db csv2ser", value = "Generate .ser files, or columnar .cols files, from .csv files")
+    public void csv2ser(@ShellOption(defaultValue = "false") boolean columnar) {
         try {
             // 获取项目根目录
             String projectRoot = System.getProperty("user.dir");
             System.out.println("projectRoot:" + projectRoot);
 
-            List<UserRecord> users = loadUsers(projectRoot + "/data/csv/users.csv");
-            List<RecipeRecord> recipes = loadRecipes(projectRoot + "/data/csv/recipes.csv");
-            List<ReviewRecord> reviews = loadReviews(projectRoot + "/data/csv/reviews.csv");
-
-            // 序列化数据
-            serializeData(users, projectRoot + "/data/import/users.ser");
-            serializeData(recipes, projectRoot + "/data/import/recipes.ser");
-            serializeData(reviews, projectRoot + "/data/import/reviews.ser");
+            // 逐行读取并按块序列化, 同一时间只保留一个块的记录
+            long users;
+            long recipes;
+            long reviews;
+            if (columnar) {
+                users = csv2cols(streamUsers(projectRoot + "/data/csv/users.csv"), UserColumns::of,
+                        projectRoot + "/data/import/" + BenchmarkConstants.USER_COLUMNS);
+                recipes = csv2cols(streamRecipes(projectRoot + "/data/csv/recipes.csv"), RecipeColumns::of,
+                        projectRoot + "/data/import/" + BenchmarkConstants.RECIPE_COLUMNS);
+                reviews = csv2cols(streamReviews(projectRoot + "/data/csv/reviews.csv"), ReviewColumns::of,
+                        projectRoot + "/data/import/" + BenchmarkConstants.REVIEW_COLUMNS);
+            } else {
+                users = csv2ser(streamUsers(projectRoot + "/data/csv/users.csv"),
+                        projectRoot + "/data/import/users.ser");
+                recipes = csv2ser(streamRecipes(projectRoot + "/data/csv/recipes.csv"),
+                        projectRoot + "/data/import/recipes.ser");
+                reviews = csv2ser(streamReviews(projectRoot + "/data/csv/reviews.csv"),
+                        projectRoot + "/data/import/reviews.ser");
+            }
 
             System.out.println("Data loading and serialization have been completed!");
-            System.out.println("user count: " + users.size());
-            System.out.println("recipe count: " + recipes.size());
-            System.out.println("review count: " + reviews.size());
+            System.out.println("user count: " + users);
+            System.out.println("recipe count: " + recipes);
+            System.out.println("review count: " + reviews);
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private static String[] parseCsvList(String listStr) {
-        if (listStr == null || listStr.trim().isEmpty() || "null".equalsIgnoreCase(listStr.trim())) {
-            return new String[0];
+    /**
+     * Writes {@code records} to {@code outputFilePath} as a {@link FuryBlockFile}, closing the stream.
+     *
+     * @return the number of records written
+     */
+    private long csv2ser(Stream<?> records, String outputFilePath) throws IOException {
+        try (records) {
+            return FuryBlockFile.write(fury, Paths.get(outputFilePath), records, FuryBlockFile.DEFAULT_BLOCK_SIZE);
         }
-
-        String trimmed = listStr.trim();
-
-        // 检查是否是 c("item1", "item2", ...) 格式
-        if (trimmed.startsWith("c(") && trimmed.endsWith(")")) {
-            // 提取括号内的内容
-            String content = trimmed.substring(2, trimmed.length() - 1).trim();
-
-            // 使用更简单的正则表达式匹配所有引号内的内容
-            Pattern pattern = Pattern.compile("\"([^\"]*)\"");
-            Matcher matcher = pattern.matcher(content);
-
-            List<String> items = new ArrayList<>();
-            while (matcher.find()) {
-                items.add(matcher.group(1));
-            }
-
-            // 如果找到了引号内的项目，返回它们
-            if (!items.isEmpty()) {
-                return items.toArray(new String[0]);
-            }
-
-            // 如果没有找到引号内容，尝试按逗号分割括号内的内容
-            return Arrays.stream(content.split("\\s*,\\s*"))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .toArray(String[]::new);
-        }
-
-        // 如果不是 c(...) 格式，尝试直接按逗号分割
-        return Arrays.stream(trimmed.split("\\s*,\\s*"))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .toArray(String[]::new);
     }
 
-    // 辅助方法：解析("123", "456")格式的字符串为long数组
-    private static long[] parseCsvLongList(String listStr) {
-        // 处理空值或空字符串
-        if (listStr == null || listStr.trim().isEmpty() || "null".equalsIgnoreCase(listStr.trim())) {
-            return new long[0];
-        }
+    /**
+     * Writes {@code records} to {@code outputFilePath} as a {@link FuryBlockFile} of column blocks, one block of
+     * {@link FuryBlockFile#DEFAULT_BLOCK_SIZE} records per file block, closing the stream.
+     *
+     * @return the number of records written
+     */
+    private <T, C> long csv2cols(Stream<T> records, Function<List<T>, C> toColumns, String outputFilePath)
+            throws IOException {
+        try (records) {
+            long[] count = new long[1];
+            Iterator<T> it = records.iterator();
+            Iterator<C> blocks = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
 
-        String trimmedStr = listStr.trim();
-        // 移除开头的括号和结尾的引号“
-        if(trimmedStr.length()>=2) {
-            trimmedStr = trimmedStr.substring(1, trimmedStr.length() - 1);
+                @Override
+                public C next() {
+                    List<T> block = new ArrayList<>(FuryBlockFile.DEFAULT_BLOCK_SIZE);
+                    while (block.size() < FuryBlockFile.DEFAULT_BLOCK_SIZE && it.hasNext()) {
+                        block.add(it.next());
+                    }
+                    count[0] += block.size();
+                    return toColumns.apply(block);
+                }
+            };
+            FuryBlockFile.write(fury, Paths.get(outputFilePath),
+                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(blocks, Spliterator.ORDERED), false), 1);
+            return count[0];
         }
+    }
 
-        // 如果字符串已经是空字符串，返回空数组
-        if (trimmedStr.isEmpty()) {
-            return new long[0];
+    /**
+     * Prints every phase of {@code report} on a line of its own, the tables of a phase indented below it.
+     */
+    private static void printReport(ImportReport report) {
+        if (report == null) {
+            System.out.println("No import report available");
+            return;
         }
-
-        // 使用逗号分割字符串，并去除每个部分的前后空格
-        String[] stringArray = trimmedStr.split("\\s*,\\s*");
-        long[] longArray = new long[stringArray.length];
-
-        for (int i = 0; i < stringArray.length; i++) {
-            try {
-                longArray[i] = Long.parseLong(stringArray[i].trim());
-            } catch (NumberFormatException e) {
-                longArray[i] = 0L; // 解析失败设为0
-            }
+        System.out.printf("%-26s %12s %10s %10s %12s%n", "phase", "rows", "MB", "ms", "rows/s");
+        for (ImportReport.Phase phase : report.getPhases()) {
+            // 没有表名的行是整个阶段的合计, 各表的行缩进显示在其下
+            String name = phase.getTable() == null ? phase.getName() : "  " + phase.getTable();
+            System.out.printf("%-26s %12d %10.1f %10d %12d%n", name, phase.getRows(),
+                    phase.getBytes() / (1024.0 * 1024.0), phase.getElapsedMillis(), phase.getRowsPerSecond());
         }
-
-        return longArray;
+        System.out.printf("%-26s %12s %10s %10d%n", "total", "", "", report.getElapsedMillis());
     }
 
-    // 辅助方法：解析时间戳
-    private static Timestamp parseTimestamp(String timestampStr) {
-        if (timestampStr == null || timestampStr.trim().isEmpty() || "null".equalsIgnoreCase(timestampStr.trim())) {
-            return null;
+    /**
+     * Prints every index of {@code report} with its status, then the scans of every table.
+     */
+    private static void printIndexReport(IndexReport report) {
+        if (report == null) {
+            System.out.println("No index report available");
+            return;
         }
-
-        // 尝试多种日期格式
-        String[] dateFormats = {"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd", "MM/dd/yyyy HH:mm:ss", "MM/dd/yyyy"};
-
-        for (String format : dateFormats) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat(format);
-                Date date = sdf.parse(timestampStr.trim());
-                return new Timestamp(date.getTime());
-            } catch (ParseException e) {
-                // 尝试下一种格式
+        System.out.printf("%-20s %-52s %-10s %12s %10s%n", "table", "index", "status", "scans", "MB");
+        for (IndexReport.Index index : report.getIndexes()) {
+            System.out.printf("%-20s %-52s %-10s %12d %10.1f%n", index.getTable(), index.getName(),
+                    index.getStatus(), index.getScans(), index.getBytes() / (1024.0 * 1024.0));
+            // 缺失的索引给出建立它的语句, 多出的索引给出它现在的定义
+            if (index.getStatus() == IndexReport.Status.MISSING || index.getStatus() == IndexReport.Status.UNMANAGED) {
+                System.out.println("  " + index.getDefinition());
             }
         }
-
-        return null; // 所有格式都解析失败
-    }
-
-    // 辅助方法：解析浮点数，处理空值和异常
-    private static float parseFloat(String floatStr) {
-        if (floatStr == null || floatStr.trim().isEmpty() || "null".equalsIgnoreCase(floatStr.trim())) {
-            return 0.0f;
-        }
-
-        try {
-            return Float.parseFloat(floatStr.trim());
-        } catch (NumberFormatException e) {
-            return 0.0f;
+        System.out.println();
+        System.out.printf("%-20s %12s %16s %12s%n", "table", "seq scans", "seq rows", "idx scans");
+        for (IndexReport.Table table : report.getTables()) {
+            System.out.printf("%-20s %12d %16d %12d%n", table.getTable(), table.getSeqScans(),
+                    table.getSeqRows(), table.getIndexScans());
         }
     }
 
-    // 辅助方法：解析整数，处理空值和异常
-    private static int parseInt(String intStr) {
-        if (intStr == null || intStr.trim().isEmpty() || "null".equalsIgnoreCase(intStr.trim())) {
-            return 0;
-        }
+    private Path importFile(String name) {
+        return Paths.get(config.getDataPath(), BenchmarkConstants.IMPORT_DATA, name);
+    }
 
-        try {
-            return Integer.parseInt(intStr.trim());
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+    // 加载用户数据
+    public static List<UserRecord> loadUsers(String filePath) throws IOException {
+        return ParallelCsvParser.parse(Paths.get(filePath), USER_FIELDS, DatabaseCommand::toUser);
     }
 
-    // 辅助方法：解析长整型，处理空值和异常
-    private static long parseLong(String longStr) {
-        if (longStr == null || longStr.trim().isEmpty() || "null".equalsIgnoreCase(longStr.trim())) {
-            return 0L;
-        }
+    //加载食谱数据
+    public static List<RecipeRecord> loadRecipes(String filePath) throws IOException {
+        return ParallelCsvParser.parse(Paths.get(filePath), RECIPE_FIELDS, DatabaseCommand::toRecipe);
+    }
 
-        try {
-            return Long.parseLong(longStr.trim());
-        } catch (NumberFormatException e) {
-            return 0L;
-        }
+    // 加载评论数据
+    public static List<ReviewRecord> loadReviews(String filePath) throws IOException {
+        return ParallelCsvParser.parse(Paths.get(filePath), REVIEW_FIELDS, DatabaseCommand::toReview);
     }
 
-    // 加载用户数据
-    public static List<UserRecord> loadUsers(String filePath) throws IOException, CsvException {
-        List<UserRecord> users = new ArrayList<>();
+    /**
+     * Reads users.csv lazily: each row is parsed and turned into a record only when the stream pulls it,
+     * so memory does not grow with the file. Close the stream to close the file.
+     */
+    public static Stream<UserRecord> streamUsers(String filePath) throws IOException {
+        return streamCsv(rfc4180Reader(filePath), USER_FIELDS, DatabaseCommand::toUser);
+    }
 
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
+    /**
+     * Reads recipes.csv lazily, like {@link #streamUsers}.
+     */
+    public static Stream<RecipeRecord> streamRecipes(String filePath) throws IOException {
+        return streamCsv(rfc4180Reader(filePath), RECIPE_FIELDS, DatabaseCommand::toRecipe);
+    }
 
-            // 跳过标题行
-            for (int i = 1; i < records.size(); i++) {
-                String[] fields = records.get(i);
+    /**
+     * Opens {@code filePath} with an RFC 4180 parser, which reads backslashes as plain characters the way
+     * {@link ParallelCsvParser} does, so every path reading the csv files sees the same fields.
+     */
+    private static CSVReader rfc4180Reader(String filePath) throws IOException {
+        // 使用 RFC4180Parser 创建 CSVReader
+        return new CSVReaderBuilder(new FileReader(filePath, StandardCharsets.UTF_8))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build();
+    }
 
-                if (fields.length >= 9) {
-                    UserRecord user = UserRecord.builder().authorId(parseLong(fields[0])).authorName(fields[1] != null ? fields[1].trim() : "").gender(fields[2] != null ? fields[2].trim() : "").age(parseInt(fields[3])).
-                            followers(parseInt(fields[4])).
-                            following(parseInt(fields[5])).
-                            followerUsers(parseCsvLongList(fields[6])).
-                            followingUsers(parseCsvLongList(fields[7])).
-                            password(fields[8] != null ? fields[8].trim() : "").build();
+    /**
+     * Reads reviews.csv lazily, like {@link #streamUsers}.
+     */
+    public static Stream<ReviewRecord> streamReviews(String filePath) throws IOException {
+        return streamCsv(rfc4180Reader(filePath), REVIEW_FIELDS, DatabaseCommand::toReview);
+    }
 
-                    users.add(user);
-                }
-            }
-        }
+    private static UserRecord toUser(String[] fields) {
+        return UserRecord.builder()
+                .authorId(FieldDecoder.parseLong(fields[0]))
+                .authorName(fields[1] != null ? fields[1].trim() : "")
+                .gender(fields[2] != null ? fields[2].trim() : "")
+                .age(FieldDecoder.parseInt(fields[3]))
+                .followers(FieldDecoder.parseInt(fields[4]))
+                .following(FieldDecoder.parseInt(fields[5]))
+                .followerUsers(FieldDecoder.parseLongList(fields[6]))
+                .followingUsers(FieldDecoder.parseLongList(fields[7]))
+                .password(fields[8] != null ? fields[8].trim() : "")
+                .build();
+    }
 
-        return users;
+    private static RecipeRecord toRecipe(String[] fields) {
+        return RecipeRecord.builder()
+                .RecipeId(FieldDecoder.parseLong(fields[0]))
+                .name(fields[1] != null ? fields[1].trim() : "")
+                .authorId(FieldDecoder.parseLong(fields[2]))
+                .authorName(fields[3] != null ? fields[3].trim() : "")
+                .cookTime(fields[4] != null ? fields[4].trim() : "")
+                .prepTime(fields[5] != null ? fields[5].trim() : "")
+                .totalTime(fields[6] != null ? fields[6].trim() : "")
+                .datePublished(FieldDecoder.parseTimestamp(fields[7]))
+                .description(fields[8] != null ? fields[8].trim() : "")
+                .recipeCategory(fields[9] != null ? fields[9].trim() : "")
+                .recipeIngredientParts(FieldDecoder.parseStringList(fields[10]))
+                .aggregatedRating(FieldDecoder.parseFloat(fields[11]))
+                .reviewCount((int)FieldDecoder.parseFloat(fields[12]))
+                .calories(FieldDecoder.parseFloat(fields[13]))
+                .fatContent(FieldDecoder.parseFloat(fields[14]))
+                .saturatedFatContent(FieldDecoder.parseFloat(fields[15]))
+                .cholesterolContent(FieldDecoder.parseFloat(fields[16]))
+                .sodiumContent(FieldDecoder.parseFloat(fields[17]))
+                .carbohydrateContent(FieldDecoder.parseFloat(fields[18]))
+                .fiberContent(FieldDecoder.parseFloat(fields[19]))
+                .sugarContent(FieldDecoder.parseFloat(fields[20]))
+                .proteinContent(FieldDecoder.parseFloat(fields[21]))
+                .recipeServings((int)FieldDecoder.parseFloat(fields[22]))
+                .recipeYield(fields[23] != null ? fields[23].trim() : "")
+                .build();
     }
 
-    //加载食谱数据
-    public static List<RecipeRecord> loadRecipes(String filePath) throws IOException, CsvException {
-        List<RecipeRecord> recipes = new ArrayList<>();
+    private static ReviewRecord toReview(String[] fields) {
+        return ReviewRecord.builder()
+                .reviewId(FieldDecoder.parseLong(fields[0]))
+                .recipeId(FieldDecoder.parseLong(fields[1]))
+                .authorId(FieldDecoder.parseLong(fields[2]))
+                .authorName(fields[3] != null ? fields[3].trim() : "")
+                .rating(FieldDecoder.parseFloat(fields[4]))
+                .review(fields[5] != null ? fields[5].trim() : "")
+                .dateSubmitted(FieldDecoder.parseTimestamp(fields[6]))
+                .dateModified(FieldDecoder.parseTimestamp(fields[7]))
+                .likes(FieldDecoder.parseLongList(fields[8]))
+                .build();
+    }
 
-        // 使用 RFC4180Parser 创建 CSVReader
-        try (CSVReader reader = new CSVReaderBuilder(new FileReader(filePath))
-                .withCSVParser(new RFC4180ParserBuilder().build())
-                .build()) {
-
-            List<String[]> records = reader.readAll();
-
-            // 跳过标题行
-            for (int i = 1; i < records.size(); i++) {
-                String[] fields = records.get(i);
-
-                if (fields.length >= 24) {
-                    RecipeRecord recipe = RecipeRecord.builder()
-                            .RecipeId(parseLong(fields[0]))
-                            .name(fields[1] != null ? fields[1].trim() : "")
-                            .authorId(parseLong(fields[2]))
-                            .authorName(fields[3] != null ? fields[3].trim() : "")
-                            .cookTime(fields[4] != null ? fields[4].trim() : "")
-                            .prepTime(fields[5] != null ? fields[5].trim() : "")
-                            .totalTime(fields[6] != null ? fields[6].trim() : "")
-                            .datePublished(parseTimestamp(fields[7]))
-                            .description(fields[8] != null ? fields[8].trim() : "")
-                            .recipeCategory(fields[9] != null ? fields[9].trim() : "")
-                            .recipeIngredientParts(parseCsvList(fields[10]))
-                            .aggregatedRating(parseFloat(fields[11]))
-                            .reviewCount((int)parseFloat(fields[12]))
-                            .calories(parseFloat(fields[13]))
-                            .fatContent(parseFloat(fields[14]))
-                            .saturatedFatContent(parseFloat(fields[15]))
-                            .cholesterolContent(parseFloat(fields[16]))
-                            .sodiumContent(parseFloat(fields[17]))
-                            .carbohydrateContent(parseFloat(fields[18]))
-                            .fiberContent(parseFloat(fields[19]))
-                            .sugarContent(parseFloat(fields[20]))
-                            .proteinContent(parseFloat(fields[21]))
-                            .recipeServings((int)parseFloat(fields[22]))
-                            .recipeYield(fields[23] != null ? fields[23].trim() : "")
-                            .build();
-
-                    recipes.add(recipe);
-                }
-            }
+    /**
+     * @return the records of {@code file}, or none if there is no such file
+     */
+    private static <T> Stream<T> streamIfExists(Path file, CsvSource<T> source) throws IOException {
+        if (!Files.exists(file)) {
+            log.warn("{} not found, importing no records from it", file);
+            return Stream.empty();
         }
-
-        return recipes;
+        return source.stream(file.toString());
     }
 
-    // 加载评论数据
-    public static List<ReviewRecord> loadReviews(String filePath) throws IOException, CsvException {
-        List<ReviewRecord> reviews = new ArrayList<>();
-
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
+    @FunctionalInterface
+    private interface CsvSource<T> {
 
-            // 跳过标题行
-            for (int i = 1; i < records.size(); i++) {
-                String[] fields = records.get(i);
-
-                if (fields.length >= 9) {
-                    ReviewRecord review = ReviewRecord.builder().reviewId(parseLong(fields[0])).
-                            recipeId(parseLong(fields[1])).authorId(parseLong(fields[2])).
-                            authorName(fields[3] != null ? fields[3].trim() : "").
-                            rating(parseFloat(fields[4])).review(fields[5] != null ? fields[5].trim() : "").
-                            dateSubmitted(parseTimestamp(fields[6])).dateModified(parseTimestamp(fields[7])).
-                            likes(parseCsvLongList(fields[8])).build();
+        Stream<T> stream(String filePath) throws IOException;
+    }
 
-                    reviews.add(review);
-                }
-            }
+    /**
+     * Turns the rows of {@code reader} after the header into records, one row at a time.
+     * Rows with fewer than {@code minFields} fields are skipped. Closing the stream closes the reader.
+     */
+    private static <T> Stream<T> streamCsv(CSVReader reader, int minFields, Function<String[], T> toRecord) {
+        // 跳过标题行
+        Iterator<String[]> rows = reader.iterator();
+        if (rows.hasNext()) {
+            rows.next();
         }
-
-        return reviews;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED), false)
+                .filter(fields -> fields.length >= minFields)
+                .map(toRecord)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
     }
 
     @SneakyThrows
     public void serializeData(List<?> data, String outputFilePath) throws IOException {
-        byte[] serializedData = fury.serialize(data);
-        Files.write(Paths.get(outputFilePath), serializedData);
+        FuryBlockFile.write(fury, Paths.get(outputFilePath), data.stream(), FuryBlockFile.DEFAULT_BLOCK_SIZE);
     }
 
     @SneakyThrows
@@ -1,17 +1,23 @@
 package io.sustc.controller;
 
+import io.sustc.dto.CountMode;
+import io.sustc.dto.CursorPage;
 import io.sustc.dto.PageResult;
 import io.sustc.dto.RecipeRecord;
+import io.sustc.dto.ReviewRecord;
 import io.sustc.service.RecipeService;
+import io.sustc.service.ReviewService;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api/recipes")
 public class RecipeController {
     private final RecipeService recipeService;
+    private final ReviewService reviewService;
 
-    public RecipeController(RecipeService recipeService) {
+    public RecipeController(RecipeService recipeService, ReviewService reviewService) {
         this.recipeService = recipeService;
+        this.reviewService = reviewService;
     }
 
     @GetMapping("/search")
@@ -21,14 +27,37 @@ public class RecipeController {
             @RequestParam(required = false) Double minRating,
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "date_desc") String sort,
+            @RequestParam(required = false) CountMode count
+    ) {
+        return recipeService.searchRecipes(keyword, category, minRating, page, size, sort, count);
+    }
+
+    @GetMapping("/search/cursor")
+    public CursorPage<RecipeRecord> searchAfter(
+            @RequestParam(defaultValue = "") String keyword,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Double minRating,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size,
             @RequestParam(defaultValue = "date_desc") String sort
     ) {
-        return recipeService.searchRecipes(keyword, category, minRating, page, size, sort);
+        return recipeService.searchRecipesAfter(keyword, category, minRating, cursor, size, sort);
     }
 
     @GetMapping("/{id}")
     public RecipeRecord getById(@PathVariable("id") long id) {
         return recipeService.getRecipeById(id);
     }
+
+    @GetMapping("/{id}/reviews/cursor")
+    public CursorPage<ReviewRecord> reviewsAfter(
+            @PathVariable("id") long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "date_desc") String sort
+    ) {
+        return reviewService.listByRecipeAfter(id, cursor, size, sort);
+    }
 }
 
@@ -0,0 +1,402 @@
+package io.sustc.csv;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoders for the fields of the data set's CSV files, written to be called once per field of millions
+ * of rows from many threads at a time.
+ * <p>
+ * Each one scans the field's characters in place: it creates no formatter, pattern, trimmed copy or
+ * exception for a well-formed value, and allocates only its result. Malformed input decodes to the same
+ * fallback as before ({@code 0}, {@code null} or an empty array), so every decoder treats blank fields and
+ * {@code null} (in any case) as missing.
+ */
+public final class FieldDecoder {
+
+    private static final String[] NO_STRINGS = new String[0];
+
+    private static final long[] NO_LONGS = new long[0];
+
+    /**
+     * Powers of ten a float holds exactly.
+     */
+    private static final float[] FLOAT_POWERS = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    /**
+     * Largest mantissa a float holds exactly.
+     */
+    private static final long FLOAT_EXACT = 1L << 24;
+
+    private FieldDecoder() {
+    }
+
+    /**
+     * Decodes {@code yyyy-MM-dd}, {@code MM/dd/yyyy}, either followed by {@code HH:mm:ss} after a space, or
+     * by {@code T} for the first form, in the default time zone. The shape is told from the separators, and
+     * text after the last field is ignored; the time is left out if it is incomplete. Out-of-range fields
+     * carry over into the next larger one, like a lenient {@code SimpleDateFormat}, though in the proleptic
+     * Gregorian calendar: the two agree from 1583 on.
+     *
+     * @return the timestamp, or null if the field is missing or has neither shape
+     */
+    public static Timestamp parseTimestamp(String s) {
+        if (s == null) {
+            return null;
+        }
+        int end = trimEnd(s);
+        int pos = trimStart(s, end);
+        if (isMissing(s, pos, end)) {
+            return null;
+        }
+
+        int first = digitsEnd(s, pos, end);
+        if (first == pos || first == end) {
+            return null;
+        }
+        char sep = s.charAt(first);
+        if (sep != '-' && sep != '/') {
+            return null;
+        }
+        int secondStart = skipBlanks(s, first + 1, end);
+        int second = digitsEnd(s, secondStart, end);
+        if (second == secondStart || second == end || s.charAt(second) != sep) {
+            return null;
+        }
+        int thirdStart = skipBlanks(s, second + 1, end);
+        int third = digitsEnd(s, thirdStart, end);
+        if (third == thirdStart) {
+            return null;
+        }
+        long a = digits(s, pos, first);
+        long b = digits(s, secondStart, second);
+        long c = digits(s, thirdStart, third);
+        long year = sep == '-' ? a : c;
+        long month = sep == '-' ? b : a;
+        long day = sep == '-' ? c : b;
+
+        long hour = 0;
+        long minute = 0;
+        long seconds = 0;
+        if (third < end && (s.charAt(third) == ' ' || sep == '-' && s.charAt(third) == 'T')) {
+            int hStart = skipBlanks(s, third + 1, end);
+            int h = digitsEnd(s, hStart, end);
+            int mStart = h > hStart && h < end && s.charAt(h) == ':' ? skipBlanks(s, h + 1, end) : -1;
+            int m = mStart < 0 ? -1 : digitsEnd(s, mStart, end);
+            int sStart = m > mStart && m < end && s.charAt(m) == ':' ? skipBlanks(s, m + 1, end) : -1;
+            int sec = sStart < 0 ? -1 : digitsEnd(s, sStart, end);
+            if (sec > sStart) {
+                hour = digits(s, hStart, h);
+                minute = digits(s, mStart, m);
+                seconds = digits(s, sStart, sec);
+            }
+        }
+        try {
+            return Timestamp.valueOf(LocalDateTime.of((int) Math.min(year, Year.MAX_VALUE), 1, 1, 0, 0)
+                    .plusMonths(month - 1)
+                    .plusDays(day - 1)
+                    .plusHours(hour)
+                    .plusMinutes(minute)
+                    .plusSeconds(seconds));
+        } catch (DateTimeException e) {
+            // carried past the supported years
+            return null;
+        }
+    }
+
+    /**
+     * @return the value of the field, or 0 if it is missing or not a number
+     */
+    public static float parseFloat(String s) {
+        if (s == null) {
+            return 0.0f;
+        }
+        int end = trimEnd(s);
+        int pos = trimStart(s, end);
+        if (isMissing(s, pos, end)) {
+            return 0.0f;
+        }
+
+        // [+-]digits[.digits] with a mantissa and power of ten that are both exact floats:
+        // one float division then rounds exactly like parsing the decimal does
+        int i = pos;
+        boolean negative = s.charAt(i) == '-';
+        if (negative || s.charAt(i) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int scale = -1;
+        int digitCount = 0;
+        for (; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                mantissa = mantissa * 10 + (ch - '0');
+                digitCount++;
+                if (scale >= 0) {
+                    scale++;
+                }
+                if (mantissa > FLOAT_EXACT) {
+                    break;
+                }
+            } else if (ch == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == end && digitCount > 0 && mantissa <= FLOAT_EXACT && scale < FLOAT_POWERS.length) {
+            float value = scale > 0 ? mantissa / FLOAT_POWERS[scale] : mantissa;
+            return negative ? -value : value;
+        }
+
+        try {
+            return Float.parseFloat(s.substring(pos, end));
+        } catch (NumberFormatException e) {
+            return 0.0f;
+        }
+    }
+
+    /**
+     * @return the value of the field, or 0 if it is missing, not an integer or out of range
+     */
+    public static int parseInt(String s) {
+        long value = parseLong(s);
+        return value == (int) value ? (int) value : 0;
+    }
+
+    /**
+     * @return the value of the field, or 0 if it is missing, not an integer or out of range
+     */
+    public static long parseLong(String s) {
+        if (s == null) {
+            return 0L;
+        }
+        int end = trimEnd(s);
+        int pos = trimStart(s, end);
+        return isMissing(s, pos, end) ? 0L : parseLong(s, pos, end);
+    }
+
+    /**
+     * Decodes the R vector syntax {@code c("a", "b")} into its quoted items, taken verbatim. A vector
+     * without quotes, or a field that is not a vector, is split at commas into trimmed, non-empty items.
+     */
+    public static String[] parseStringList(String s) {
+        if (s == null) {
+            return NO_STRINGS;
+        }
+        int end = trimEnd(s);
+        int pos = trimStart(s, end);
+        if (isMissing(s, pos, end)) {
+            return NO_STRINGS;
+        }
+
+        if (end - pos >= 3 && s.startsWith("c(", pos) && s.charAt(end - 1) == ')') {
+            int contentEnd = end - 1;
+            List<String> items = new ArrayList<>();
+            int open = s.indexOf('"', pos + 2);
+            while (open >= 0 && open < contentEnd) {
+                int close = s.indexOf('"', open + 1);
+                if (close < 0 || close >= contentEnd) {
+                    break;
+                }
+                items.add(s.substring(open + 1, close));
+                open = s.indexOf('"', close + 1);
+            }
+            if (!items.isEmpty()) {
+                return items.toArray(NO_STRINGS);
+            }
+            pos += 2;
+            end = contentEnd;
+        }
+
+        List<String> items = new ArrayList<>();
+        while (pos <= end) {
+            int comma = s.indexOf(',', pos);
+            int itemEnd = comma < 0 || comma > end ? end : comma;
+            int e = itemEnd;
+            int b = pos;
+            while (b < e && s.charAt(b) <= ' ') {
+                b++;
+            }
+            while (e > b && s.charAt(e - 1) <= ' ') {
+                e--;
+            }
+            if (b < e) {
+                items.add(s.substring(b, e));
+            }
+            pos = itemEnd + 1;
+        }
+        return items.toArray(NO_STRINGS);
+    }
+
+    /**
+     * Decodes a list like {@code (1, 2, 3)}: the characters around it are dropped, whatever they are,
+     * and every comma-separated item that is not an integer decodes to 0. Blank items at the end are left
+     * out.
+     */
+    public static long[] parseLongList(String s) {
+        if (s == null) {
+            return NO_LONGS;
+        }
+        int end = trimEnd(s);
+        int pos = trimStart(s, end);
+        if (isMissing(s, pos, end)) {
+            return NO_LONGS;
+        }
+        if (end - pos >= 2) {
+            pos++;
+            end--;
+        }
+        if (pos == end) {
+            return NO_LONGS;
+        }
+
+        int count = 1;
+        for (int i = pos; i < end; i++) {
+            if (s.charAt(i) == ',') {
+                count++;
+            }
+        }
+        if (count > 1) {
+            // like String.split, leave out blank items after the last value
+            int last = end;
+            while (count > 1) {
+                int comma = s.lastIndexOf(',', last - 1);
+                if (!isBlank(s, comma + 1, last)) {
+                    break;
+                }
+                last = comma;
+                count--;
+            }
+            if (count == 1 && isBlank(s, pos, last)) {
+                return NO_LONGS;
+            }
+            end = last;
+        }
+
+        long[] values = new long[count];
+        int item = 0;
+        while (item < count) {
+            int comma = s.indexOf(',', pos);
+            int itemEnd = comma < 0 || comma > end ? end : comma;
+            int e = itemEnd;
+            int b = pos;
+            while (b < e && s.charAt(b) <= ' ') {
+                b++;
+            }
+            while (e > b && s.charAt(e - 1) <= ' ') {
+                e--;
+            }
+            values[item++] = b < e ? parseLong(s, b, e) : 0L;
+            pos = itemEnd + 1;
+        }
+        return values;
+    }
+
+    /**
+     * Parses the trimmed, non-empty range {@code [pos, end)} as a decimal long.
+     *
+     * @return the value, or 0 if the range is not an integer or out of range
+     */
+    private static long parseLong(String s, int pos, int end) {
+        int i = pos;
+        boolean negative = s.charAt(i) == '-';
+        if (negative || s.charAt(i) == '+') {
+            i++;
+        }
+        if (i == end) {
+            return 0L;
+        }
+        if (end - i > 18) {
+            // may overflow
+            return parseLongSlow(s, pos, end);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') {
+                // not an integer, unless in digits of another script
+                return parseLongSlow(s, pos, end);
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static long parseLongSlow(String s, int pos, int end) {
+        try {
+            return Long.parseLong(s.substring(pos, end));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * @return the position after the spaces and tabs at {@code pos}, which {@code SimpleDateFormat} allows
+     *         before every number
+     */
+    private static int skipBlanks(String s, int pos, int end) {
+        while (pos < end && (s.charAt(pos) == ' ' || s.charAt(pos) == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static long digits(String s, int pos, int end) {
+        long value = 0;
+        for (int i = pos; i < end && value < 1_000_000_000_000L; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return the end of the run of ASCII digits starting at {@code pos}
+     */
+    private static int digitsEnd(String s, int pos, int end) {
+        while (pos < end && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Whether {@code [pos, end)} holds only the white space {@code \s} matches in a regex.
+     */
+    private static boolean isBlank(String s, int pos, int end) {
+        for (int i = pos; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch != ' ' && ch != '\t' && ch != '\n' && ch != '\u000B' && ch != '\f' && ch != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the trimmed field {@code [pos, end)} is empty or {@code null}.
+     */
+    private static boolean isMissing(String s, int pos, int end) {
+        return pos == end || end - pos == 4 && s.regionMatches(true, pos, "null", 0, 4);
+    }
+
+    private static int trimStart(String s, int end) {
+        int pos = 0;
+        while (pos < end && s.charAt(pos) <= ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int trimEnd(String s) {
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,261 @@
+package io.sustc.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Parses a whole CSV file on a {@link ForkJoinPool}, one memory-mapped chunk per task.
+ * <p>
+ * Fields follow RFC 4180: a field starting with {@code "} runs to the next unpaired {@code "}, may contain
+ * commas and line breaks, and {@code ""} stands for one quote. Records end at {@code \n}, an optional
+ * {@code \r} before it is dropped, and {@code \r\n} inside a quoted field reads as {@code \n}, the same
+ * fields opencsv returns. Backslashes have no special meaning.
+ * <p>
+ * A line break starts a record only when an even number of quotes precedes it in the file. The file is
+ * cut into segments that are scanned in parallel for their quote parity and for their first line break
+ * after an even and after an odd number of local quotes. A prefix of the parities then tells which of the
+ * two starts each chunk, so no task ever has to look back past its own segment. Chunks are parsed in
+ * parallel and their records concatenated in file order, so the result does not depend on the scheduling.
+ */
+public final class ParallelCsvParser {
+
+    /**
+     * Smallest segment worth a task of its own.
+     */
+    private static final long MIN_SEGMENT = 1L << 20;
+
+    /**
+     * Largest segment, well below the 2 GB limit of one mapping.
+     */
+    private static final long MAX_SEGMENT = 256L << 20;
+
+    /**
+     * Segments per worker, so that a slow chunk does not hold the others up.
+     */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private ParallelCsvParser() {
+    }
+
+    /**
+     * Parses {@code file} on the common pool, see {@link #parse(Path, int, Function, ForkJoinPool)}.
+     */
+    public static <T> List<T> parse(Path file, int minFields, Function<String[], T> toRecord) throws IOException {
+        return parse(file, minFields, toRecord, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses the records of {@code file} after its header row.
+     *
+     * @param minFields records with fewer fields are skipped, like blank lines
+     * @param toRecord  turns the fields of one record into its DTO; called concurrently
+     * @return the converted records in file order
+     */
+    public static <T> List<T> parse(Path file, int minFields, Function<String[], T> toRecord, ForkJoinPool pool)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long segment = Math.min(MAX_SEGMENT,
+                    Math.max(MIN_SEGMENT, size / ((long) pool.getParallelism() * SEGMENTS_PER_THREAD) + 1));
+            int segments = (int) Math.max(1, (size + segment - 1) / segment);
+
+            // pass 1: quote parity and candidate record starts of every segment
+            List<ForkJoinTask<Segment>> scans = new ArrayList<>(segments);
+            for (int i = 0; i < segments; i++) {
+                long start = i * segment;
+                long end = Math.min(size, start + segment);
+                scans.add(pool.submit(() -> Segment.scan(map(channel, start, end - start), start)));
+            }
+
+            // the first record start of each segment, given the quotes before it
+            long[] starts = new long[segments + 1];
+            int chunks = 0;
+            starts[chunks++] = 0;
+            boolean quoted = false;
+            for (int i = 0; i < segments; i++) {
+                Segment s = scans.get(i).join();
+                long start = s.firstBreak[quoted ? 1 : 0];
+                if (i > 0 && start > 0 && start < size) {
+                    starts[chunks++] = start;
+                }
+                quoted ^= s.oddQuotes;
+            }
+            starts[chunks] = size;
+
+            // pass 2: parse every chunk
+            List<ForkJoinTask<List<T>>> parses = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long start = starts[i];
+                long end = starts[i + 1];
+                boolean header = i == 0;
+                parses.add(pool.submit(() -> new ChunkParser<>(map(channel, start, end - start), minFields, toRecord)
+                        .parse(header)));
+            }
+
+            List<List<T>> parsed = new ArrayList<>(chunks);
+            int total = 0;
+            for (ForkJoinTask<List<T>> task : parses) {
+                List<T> records = task.join();
+                parsed.add(records);
+                total += records.size();
+            }
+            List<T> records = new ArrayList<>(total);
+            parsed.forEach(records::addAll);
+            return records;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("CSV record at byte " + start + " spans more than 2 GB");
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * What pass 1 learns about one segment.
+     */
+    private static final class Segment {
+
+        /**
+         * Whether the segment holds an odd number of quotes.
+         */
+        boolean oddQuotes;
+
+        /**
+         * File offset after the first line break preceded by an even ([0]) or odd ([1]) number of quotes
+         * in the segment, -1 if there is none.
+         */
+        final long[] firstBreak = {-1, -1};
+
+        static Segment scan(MappedByteBuffer buffer, long offset) {
+            Segment s = new Segment();
+            int parity = 0;
+            int limit = buffer.limit();
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    parity ^= 1;
+                } else if (b == '\n' && s.firstBreak[parity] < 0) {
+                    s.firstBreak[parity] = offset + i + 1;
+                }
+            }
+            s.oddQuotes = parity == 1;
+            return s;
+        }
+    }
+
+    /**
+     * Parses the records of one chunk, which starts at a record boundary.
+     */
+    private static final class ChunkParser<T> {
+
+        private final MappedByteBuffer buffer;
+
+        private final int limit;
+
+        private final int minFields;
+
+        private final Function<String[], T> toRecord;
+
+        private final List<String> fields = new ArrayList<>();
+
+        private byte[] scratch = new byte[256];
+
+        private int length;
+
+        private int pos;
+
+        ChunkParser(MappedByteBuffer buffer, int minFields, Function<String[], T> toRecord) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            this.minFields = minFields;
+            this.toRecord = toRecord;
+        }
+
+        List<T> parse(boolean skipHeader) {
+            List<T> records = new ArrayList<>();
+            if (skipHeader && pos < limit) {
+                nextRecord();
+            }
+            while (pos < limit) {
+                nextRecord();
+                if (fields.size() >= minFields) {
+                    records.add(toRecord.apply(fields.toArray(new String[0])));
+                }
+            }
+            return records;
+        }
+
+        /**
+         * Reads the fields of the record at {@link #pos} and moves past its line break.
+         */
+        private void nextRecord() {
+            fields.clear();
+            while (true) {
+                length = 0;
+                if (pos < limit && buffer.get(pos) == '"') {
+                    pos++;
+                    readQuoted();
+                }
+                int quoted = length;
+                // unquoted text, or whatever follows the closing quote, up to the field's end
+                while (pos < limit) {
+                    byte b = buffer.get(pos);
+                    if (b == ',' || b == '\n') {
+                        break;
+                    }
+                    append(b);
+                    pos++;
+                }
+                boolean lastField = pos >= limit || buffer.get(pos) == '\n';
+                if (lastField && length > quoted && scratch[length - 1] == '\r') {
+                    length--;
+                }
+                fields.add(new String(scratch, 0, length, StandardCharsets.UTF_8));
+                pos++;
+                if (lastField) {
+                    return;
+                }
+            }
+        }
+
+        private void readQuoted() {
+            while (pos < limit) {
+                byte b = buffer.get(pos++);
+                if (b == '"') {
+                    if (pos < limit && buffer.get(pos) == '"') {
+                        pos++;
+                    } else {
+                        return;
+                    }
+                } else if (b == '\r' && pos < limit && buffer.get(pos) == '\n') {
+                    continue;
+                }
+                append(b);
+            }
+        }
+
+        private void append(byte b) {
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, length * 2);
+            }
+            scratch[length++] = b;
+        }
+    }
+}